@@ -0,0 +1,188 @@
+package no.idporten.validator.certificate;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.util.ArrayReport;
+import no.idporten.validator.certificate.util.DefaultExecutor;
+
+import java.security.cert.X509Certificate;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processor validating a stream of encoded certificates (DER or PEM) and publishing a result per certificate, in
+ * order of completion. At most a configured number of certificates are requested from upstream and validated at a
+ * time, and a validation waits for downstream demand before its result is published, propagating backpressure
+ * upstream. Completion and errors from upstream are published when validations in progress are completed.
+ * <p/>
+ * Subscription upstream is cancelled when the processor is closed, or when a validation completes without any
+ * subscribers to receive its result.
+ */
+public class ValidationProcessor extends SubmissionPublisher<ValidationProcessor.Result>
+        implements Flow.Processor<byte[], ValidationProcessor.Result> {
+
+    /**
+     * Default number of validations in progress is 16.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+
+    private final Validator validator;
+
+    private final Executor executor;
+
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile Flow.Subscription subscription;
+
+    private volatile boolean upstreamDone;
+
+    private volatile Throwable upstreamError;
+
+    public ValidationProcessor(Validator validator) {
+        this(validator, DefaultExecutor.getInstance(), DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param validator   Validator used for validation.
+     * @param executor    Executor used for validation and publishing of results, must allow more than maxInFlight
+     *                    concurrent tasks as validations wait for publishing.
+     * @param maxInFlight Maximum number of validations in progress.
+     */
+    public ValidationProcessor(Validator validator, Executor executor, int maxInFlight) {
+        super(executor, Flow.defaultBufferSize());
+        this.validator = validator;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null || isClosed()) {
+            subscription.cancel();
+            return;
+        }
+
+        this.subscription = subscription;
+        subscription.request(maxInFlight);
+    }
+
+    @Override
+    public void onNext(byte[] item) {
+        inFlight.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                Result result = validate(item);
+                if (!isClosed() && hasSubscribers())
+                    submit(result);
+            } catch (IllegalStateException e) {
+                // Closed while waiting for demand.
+            } finally {
+                if (isClosed() || !hasSubscribers())
+                    subscription.cancel();
+                else
+                    subscription.request(1);
+                finish();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        inFlight.incrementAndGet();
+        upstreamError = throwable;
+        upstreamDone = true;
+        finish();
+    }
+
+    @Override
+    public void onComplete() {
+        inFlight.incrementAndGet();
+        upstreamDone = true;
+        finish();
+    }
+
+    /**
+     * Cancels subscription upstream unless upstream is done.
+     */
+    @Override
+    public void close() {
+        if (!upstreamDone && subscription != null)
+            subscription.cancel();
+        super.close();
+    }
+
+    /**
+     * Cancels subscription upstream unless upstream is done.
+     */
+    @Override
+    public void closeExceptionally(Throwable error) {
+        if (!upstreamDone && subscription != null)
+            subscription.cancel();
+        super.closeExceptionally(error);
+    }
+
+    /**
+     * Closes publisher when upstream is done and no validations are in progress.
+     */
+    private void finish() {
+        if (inFlight.decrementAndGet() == 0 && upstreamDone) {
+            if (upstreamError != null)
+                closeExceptionally(upstreamError);
+            else
+                close();
+        }
+    }
+
+    private Result validate(byte[] encoded) {
+        X509Certificate certificate = null;
+        try {
+            certificate = Validator.getCertificate(encoded);
+            return new Result(encoded, certificate, ValidationOutcome.success(validator.validate(certificate, ArrayReport.newInstance())));
+        } catch (CertificateValidationException e) {
+            return new Result(encoded, certificate, ValidationOutcome.failure(e));
+        } catch (RuntimeException e) {
+            return new Result(encoded, certificate, ValidationOutcome.failure(FailureCode.ERROR, String.valueOf(e.getMessage())));
+        }
+    }
+
+    /**
+     * Result of validation of an encoded certificate.
+     */
+    public static class Result {
+
+        private final byte[] encoded;
+
+        private final X509Certificate certificate;
+
+        private final ValidationOutcome outcome;
+
+        Result(byte[] encoded, X509Certificate certificate, ValidationOutcome outcome) {
+            this.encoded = encoded;
+            this.certificate = certificate;
+            this.outcome = outcome;
+        }
+
+        /**
+         * @return Encoded certificate as received.
+         */
+        public byte[] getEncoded() {
+            return encoded;
+        }
+
+        /**
+         * @return Parsed certificate, null if parsing failed.
+         */
+        public X509Certificate getCertificate() {
+            return certificate;
+        }
+
+        public ValidationOutcome getOutcome() {
+            return outcome;
+        }
+    }
+}
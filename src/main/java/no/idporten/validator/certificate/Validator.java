@@ -1,17 +1,37 @@
 package no.idporten.validator.certificate;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
 import no.idporten.validator.certificate.api.Property;
 import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.structure.RulePlanner;
+import no.idporten.validator.certificate.util.ArrayReport;
+import no.idporten.validator.certificate.util.DefaultExecutor;
 import no.idporten.validator.certificate.util.DummyReport;
+import no.idporten.validator.certificate.util.ParsedCertificate;
 import no.idporten.validator.certificate.util.SimpleProperty;
 
+import javax.security.auth.x500.X500Principal;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
 
 /**
  * Encapsulate validator for a more extensive API.
@@ -20,7 +40,10 @@ public class Validator implements ValidatorRule {
 
     public static final Property<X509Certificate> CERTIFICATE = SimpleProperty.create();
 
-    private static CertificateFactory certFactory;
+    /**
+     * Certificate factories are not thread-safe, each thread is given its own factory.
+     */
+    private static final ThreadLocal<CertificateFactory> certFactory = new ThreadLocal<>();
 
     public static X509Certificate getCertificate(byte[] cert) throws CertificateValidationException {
         return getCertificate(new ByteArrayInputStream(cert));
@@ -28,10 +51,13 @@ public class Validator implements ValidatorRule {
 
     public static X509Certificate getCertificate(InputStream inputStream) throws CertificateValidationException {
         try {
-            if (certFactory == null)
-                certFactory = CertificateFactory.getInstance("X.509");
+            CertificateFactory factory = certFactory.get();
+            if (factory == null) {
+                factory = CertificateFactory.getInstance("X.509");
+                certFactory.set(factory);
+            }
 
-            return (X509Certificate) certFactory.generateCertificate(inputStream);
+            return (X509Certificate) factory.generateCertificate(inputStream);
         } catch (CertificateException e) {
             throw new CertificateValidationException(e.getMessage(), e);
         }
@@ -53,7 +79,213 @@ public class Validator implements ValidatorRule {
 
     @Override
     public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
-        return validatorRule.validate(certificate, report);
+        return validatorRule.validate(ParsedCertificate.of(certificate), report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        return validatorRule.validateToResult(ParsedCertificate.of(certificate), report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        return validatorRule.validateAsync(ParsedCertificate.of(certificate), report, executor);
+    }
+
+    /**
+     * Validates certificate asynchronously, performing blocking work (CRL retrieval, chain building) using
+     * {@link DefaultExecutor}.
+     *
+     * @see #validateAsync(X509Certificate, Executor)
+     */
+    public CompletionStage<Report> validateAsync(X509Certificate certificate) {
+        return validateAsync(certificate, DefaultExecutor.getInstance());
+    }
+
+    /**
+     * Validates certificate asynchronously. Validation completes in calling thread when no rule performs blocking
+     * work.
+     *
+     * @param certificate Certificate subject to validation.
+     * @param executor    Executor used for blocking work.
+     * @return Report when validated, completed exceptionally with {@link CertificateValidationException} on failure.
+     */
+    public CompletionStage<Report> validateAsync(X509Certificate certificate, Executor executor) {
+        return validateAsync(certificate, ArrayReport.newInstance(), executor).thenCompose(outcome -> {
+            CompletableFuture<Report> result = new CompletableFuture<>();
+            if (outcome.isValid())
+                result.complete(outcome.getReport());
+            else
+                result.completeExceptionally(outcome.toException());
+            return result;
+        });
+    }
+
+    public ValidationOutcome validateToResult(X509Certificate certificate) {
+        return validateToResult(certificate, DummyReport.INSTANCE);
+    }
+
+    public ValidationOutcome validateToResult(byte[] bytes, Report report) {
+        try {
+            X509Certificate certificate = getCertificate(bytes);
+            ValidationOutcome outcome = validateToResult(certificate, report);
+            if (outcome.isValid())
+                outcome.getReport().set(CERTIFICATE, certificate);
+
+            return outcome;
+        } catch (CertificateValidationException e) {
+            return ValidationOutcome.failure(e);
+        }
+    }
+
+    /**
+     * Validates certificates in parallel using the common pool.
+     *
+     * @see #validateAll(Collection, ForkJoinPool)
+     */
+    public List<ValidationOutcome> validateAll(Collection<X509Certificate> certificates) {
+        return validateAll(certificates, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validates certificates in parallel. Certificates are grouped by issuer, and the first certificate of each group
+     * is validated before the rest of the group, allowing material of the issuer (trust material, CRLs) to be loaded
+     * once per group.
+     *
+     * @param certificates Certificates subject to validation.
+     * @param parallelism  Number of threads used for validation, using a pool shut down when validation completes.
+     * @return Outcome of validation per certificate, in order of certificates.
+     */
+    public List<ValidationOutcome> validateAll(Collection<X509Certificate> certificates, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return validateAll(certificates, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Validates certificates in parallel, see {@link #validateAll(Collection, int)}.
+     *
+     * @param certificates Certificates subject to validation.
+     * @param pool         Pool used for validation, left running when validation completes.
+     * @return Outcome of validation per certificate, in order of certificates.
+     */
+    public List<ValidationOutcome> validateAll(Collection<X509Certificate> certificates, ForkJoinPool pool) {
+        X509Certificate[] items = certificates.toArray(new X509Certificate[0]);
+        ValidationOutcome[] outcomes = new ValidationOutcome[items.length];
+
+        run(pool, () -> validateGrouped(items, outcomes));
+
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Parses and validates encoded certificates in parallel using the common pool.
+     *
+     * @see #validateAllEncoded(Collection, ForkJoinPool)
+     */
+    public List<ValidationOutcome> validateAllEncoded(Collection<byte[]> certificates) {
+        return validateAllEncoded(certificates, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses and validates encoded certificates in parallel, see {@link #validateAll(Collection, int)}. Reports of
+     * successful validations hold the parsed certificate as {@link #CERTIFICATE}.
+     *
+     * @param certificates Encoded certificates subject to validation.
+     * @param parallelism  Number of threads used for validation, using a pool shut down when validation completes.
+     * @return Outcome of validation per certificate, in order of certificates.
+     */
+    public List<ValidationOutcome> validateAllEncoded(Collection<byte[]> certificates, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return validateAllEncoded(certificates, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parses and validates encoded certificates in parallel, see {@link #validateAllEncoded(Collection, int)}.
+     *
+     * @param certificates Encoded certificates subject to validation.
+     * @param pool         Pool used for validation, left running when validation completes.
+     * @return Outcome of validation per certificate, in order of certificates.
+     */
+    public List<ValidationOutcome> validateAllEncoded(Collection<byte[]> certificates, ForkJoinPool pool) {
+        byte[][] encoded = certificates.toArray(new byte[0][]);
+        X509Certificate[] items = new X509Certificate[encoded.length];
+        ValidationOutcome[] outcomes = new ValidationOutcome[encoded.length];
+
+        run(pool, () -> {
+            IntStream.range(0, encoded.length).parallel().forEach(i -> {
+                try {
+                    items[i] = getCertificate(encoded[i]);
+                } catch (CertificateValidationException e) {
+                    outcomes[i] = ValidationOutcome.failure(e);
+                } catch (RuntimeException e) {
+                    outcomes[i] = ValidationOutcome.failure(FailureCode.ERROR, String.valueOf(e.getMessage()));
+                }
+            });
+
+            validateGrouped(items, outcomes);
+        });
+
+        for (int i = 0; i < outcomes.length; i++)
+            if (outcomes[i].isValid())
+                outcomes[i].getReport().set(CERTIFICATE, items[i]);
+
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Validates certificates not yet having an outcome, grouped by issuer. Missing certificates and unexpected
+     * exceptions result in {@link FailureCode#ERROR} for the certificate in question only.
+     */
+    private void validateGrouped(X509Certificate[] items, ValidationOutcome[] outcomes) {
+        Map<X500Principal, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.length; i++)
+            if (outcomes[i] == null) {
+                if (items[i] == null)
+                    outcomes[i] = ValidationOutcome.failure(FailureCode.ERROR, "Certificate is missing.");
+                else
+                    groups.computeIfAbsent(items[i].getIssuerX500Principal(), k -> new ArrayList<>()).add(i);
+            }
+
+        groups.values().parallelStream().forEach(group -> {
+            outcomes[group.get(0)] = validateItem(items[group.get(0)]);
+            group.subList(1, group.size()).parallelStream()
+                    .forEach(i -> outcomes[i] = validateItem(items[i]));
+        });
+    }
+
+    private ValidationOutcome validateItem(X509Certificate certificate) {
+        try {
+            return validateToResult(certificate, ArrayReport.newInstance());
+        } catch (RuntimeException e) {
+            return ValidationOutcome.failure(FailureCode.ERROR, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static void run(ForkJoinPool pool, Runnable task) {
+        Future<?> future = pool.submit(task);
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during validation.", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
     }
 
     public X509Certificate validate(InputStream inputStream) throws CertificateValidationException {
@@ -87,12 +319,7 @@ public class Validator implements ValidatorRule {
     }
 
     public boolean isValid(X509Certificate certificate) {
-        try {
-            validate(certificate, DummyReport.INSTANCE);
-            return true;
-        } catch (CertificateValidationException e) {
-            return false;
-        }
+        return validateToResult(certificate, DummyReport.INSTANCE).isValid();
     }
 
     public boolean isValid(InputStream inputStream) {
@@ -110,4 +337,14 @@ public class Validator implements ValidatorRule {
             return false;
         }
     }
+
+    /**
+     * Describes rules used by validator, one rule per line indented by depth.
+     *
+     * @return Description of rules.
+     * @see RulePlanner#explain(ValidatorRule)
+     */
+    public String explain() {
+        return RulePlanner.explain(validatorRule);
+    }
 }
@@ -1,7 +1,9 @@
 package no.idporten.validator.certificate;
 
 import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.CachingRule;
 import no.idporten.validator.certificate.structure.Junction;
+import no.idporten.validator.certificate.structure.RulePlanner;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +24,12 @@ public class ValidatorBuilder {
 
     private List<ValidatorRule> validatorRules = new ArrayList<>();
 
+    private long cacheTtlMillis;
+
+    private int cacheMaxEntries;
+
+    private boolean optimize;
+
     private ValidatorBuilder() {
         // No action
     }
@@ -47,15 +55,45 @@ public class ValidatorBuilder {
         return this;
     }
 
+    /**
+     * Cache results of validation using fingerprint of certificates as key.
+     *
+     * @param ttlMillis  Maximum time to live for cached results.
+     * @param maxEntries Maximum number of cached results.
+     * @return Builder instance.
+     * @see CachingRule
+     */
+    public ValidatorBuilder cache(long ttlMillis, int maxEntries) {
+        this.cacheTtlMillis = ttlMillis;
+        this.cacheMaxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Compile rules into an equivalent tree doing less work per validation.
+     *
+     * @return Builder instance.
+     * @see RulePlanner
+     */
+    public ValidatorBuilder optimize() {
+        this.optimize = true;
+        return this;
+    }
+
     /**
      * Generates a ValidatorHelper instance containing defined validator(s).
      *
      * @return Validator ready for use.
      */
     public Validator build() {
-        if (validatorRules.size() == 1)
-            return new Validator(validatorRules.get(0));
+        ValidatorRule validatorRule = Junction.and(validatorRules);
+
+        if (optimize)
+            validatorRule = RulePlanner.optimize(validatorRule);
+
+        if (cacheMaxEntries > 0)
+            validatorRule = new CachingRule(validatorRule, cacheTtlMillis, cacheMaxEntries);
 
-        return new Validator(Junction.and(validatorRules));
+        return new Validator(validatorRule);
     }
 }
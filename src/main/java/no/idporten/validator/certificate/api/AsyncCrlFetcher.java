@@ -0,0 +1,21 @@
+package no.idporten.validator.certificate.api;
+
+import java.security.cert.X509CRL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * CRL fetcher able to fetch CRLs without blocking the calling thread.
+ */
+public interface AsyncCrlFetcher extends CrlFetcher {
+
+    /**
+     * Fetch CRL asynchronously. CRLs available without downloading are returned as completed futures.
+     *
+     * @param url      Location of CRL.
+     * @param executor Executor used for downloading.
+     * @return CRL when fetched, completed exceptionally with {@link CertificateValidationException} on failure.
+     */
+    CompletableFuture<X509CRL> getAsync(String url, Executor executor);
+
+}
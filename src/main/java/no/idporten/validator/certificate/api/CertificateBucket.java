@@ -1,7 +1,11 @@
 package no.idporten.validator.certificate.api;
 
 import javax.security.auth.x500.X500Principal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -20,8 +24,96 @@ public interface CertificateBucket extends Iterable<X509Certificate> {
      */
     X509Certificate findBySubject(X500Principal principal) throws CertificateBucketException;
 
+    /**
+     * Find certificate by Subject Key Identifier.
+     *
+     * @param keyIdentifier Key identifier of certificate to be found.
+     * @return Certificate if found, otherwise null.
+     * @throws CertificateBucketException
+     */
+    default X509Certificate findBySubjectKeyIdentifier(byte[] keyIdentifier) throws CertificateBucketException {
+        for (X509Certificate certificate : this) {
+            // Extension value is an octet string holding the key identifier as an octet string
+            byte[] extensionValue = certificate.getExtensionValue("2.5.29.14");
+            if (extensionValue != null && Arrays.equals(keyIdentifier, octets(octets(extensionValue))))
+                return certificate;
+        }
+
+        return null;
+    }
+
+    /**
+     * Find certificate by SHA-256 fingerprint.
+     *
+     * @param fingerprint Fingerprint as hex of certificate to be found.
+     * @return Certificate if found, otherwise null.
+     * @throws CertificateBucketException
+     */
+    default X509Certificate findByFingerprint(String fingerprint) throws CertificateBucketException {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            for (X509Certificate certificate : this) {
+                StringBuilder hex = new StringBuilder();
+                for (byte b : messageDigest.digest(certificate.getEncoded()))
+                    hex.append(String.format("%02x", b));
+                if (hex.toString().equalsIgnoreCase(fingerprint))
+                    return certificate;
+            }
+
+            return null;
+        } catch (CertificateEncodingException | NoSuchAlgorithmException e) {
+            throw new CertificateBucketException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Checks presence of certificate in bucket.
+     *
+     * @param certificate Certificate to look for.
+     * @return True if certificate is found in bucket.
+     * @throws CertificateBucketException
+     */
+    default boolean contains(X509Certificate certificate) throws CertificateBucketException {
+        for (X509Certificate cert : this)
+            if (cert.equals(certificate))
+                return true;
+
+        return false;
+    }
+
+    /**
+     * Version of content in bucket. A new version must be reported whenever content of bucket changes, allowing
+     * material derived from content to be reused as long as version is unchanged.
+     *
+     * @return Current version of content.
+     */
+    default long getVersion() {
+        return 0;
+    }
+
     default List<X509Certificate> asList() {
         return StreamSupport.stream(spliterator(), false)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Content of DER encoded octet string, null if not an octet string.
+     */
+    private static byte[] octets(byte[] encoded) {
+        if (encoded == null || encoded.length < 2 || encoded[0] != 0x04)
+            return null;
+
+        int length = encoded[1] & 0xff;
+        int offset = 2;
+        if (length > 0x7f) {
+            int bytes = length & 0x7f;
+            if (bytes > 3 || encoded.length < offset + bytes)
+                return null;
+            length = 0;
+            for (int i = 0; i < bytes; i++)
+                length = (length << 8) | (encoded[offset++] & 0xff);
+        }
+
+        return offset + length > encoded.length ? null : Arrays.copyOfRange(encoded, offset, offset + length);
+    }
 }
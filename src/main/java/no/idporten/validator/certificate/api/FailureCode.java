@@ -0,0 +1,36 @@
+package no.idporten.validator.certificate.api;
+
+/**
+ * Structured reason for failed validation.
+ */
+public enum FailureCode {
+
+    /**
+     * Validation failed for a reason not covered by a more specific code.
+     */
+    FAILED,
+
+    /**
+     * Validation could not be performed, e.g. a CRL could not be fetched.
+     */
+    ERROR,
+
+    EXPIRED,
+
+    EXPIRES_SOON,
+
+    REVOKED,
+
+    BLACKLISTED,
+
+    NOT_WHITELISTED,
+
+    KEY_USAGE,
+
+    CRITICAL_EXTENSION,
+
+    /**
+     * Junction failed as a result of failures of its rules.
+     */
+    JUNCTION
+}
@@ -0,0 +1,9 @@
+package no.idporten.validator.certificate.api;
+
+/**
+ * Marker for rules without side effects and not depending on properties reported by other rules, allowing the rule
+ * to be evaluated in any order relative to other independent rules.
+ */
+public interface IndependentRule extends ValidatorRule {
+
+}
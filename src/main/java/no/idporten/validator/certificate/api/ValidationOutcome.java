@@ -0,0 +1,122 @@
+package no.idporten.validator.certificate.api;
+
+import java.util.function.Supplier;
+
+/**
+ * Result of validation, allowing failed validations to be reported without throwing exceptions. Messages of
+ * failures are rendered when first requested, and exceptions are only created when requested.
+ */
+public final class ValidationOutcome {
+
+    private final Report report;
+
+    private final FailureCode failureCode;
+
+    private final Supplier<String> messageSupplier;
+
+    private final CertificateValidationException exception;
+
+    private String message;
+
+    public static ValidationOutcome success(Report report) {
+        return new ValidationOutcome(report, null, null, null);
+    }
+
+    public static ValidationOutcome failure(FailureCode failureCode, String message) {
+        return new ValidationOutcome(null, failureCode, null, null).withMessage(message);
+    }
+
+    /**
+     * @param failureCode     Reason of failure.
+     * @param messageSupplier Supplier of message, invoked at most once and only when message is requested.
+     */
+    public static ValidationOutcome failure(FailureCode failureCode, Supplier<String> messageSupplier) {
+        return new ValidationOutcome(null, failureCode, messageSupplier, null);
+    }
+
+    /**
+     * Creates outcome of exception thrown during validation. The exception is kept and thrown as is by
+     * {@link #orThrow()}.
+     */
+    public static ValidationOutcome failure(CertificateValidationException exception) {
+        return new ValidationOutcome(null,
+                exception instanceof FailedValidationException ? FailureCode.FAILED : FailureCode.ERROR,
+                exception::getMessage, exception);
+    }
+
+    private ValidationOutcome(Report report, FailureCode failureCode, Supplier<String> messageSupplier, CertificateValidationException exception) {
+        this.report = report;
+        this.failureCode = failureCode;
+        this.messageSupplier = messageSupplier;
+        this.exception = exception;
+    }
+
+    private ValidationOutcome withMessage(String message) {
+        this.message = message;
+        return this;
+    }
+
+    public boolean isValid() {
+        return failureCode == null;
+    }
+
+    /**
+     * @return Report of successful validation, null if validation failed.
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * @return Reason of failure, null if validation succeeded.
+     */
+    public FailureCode getFailureCode() {
+        return failureCode;
+    }
+
+    /**
+     * @return Message of failure, null if validation succeeded.
+     */
+    public String getMessage() {
+        if (message == null && messageSupplier != null)
+            message = messageSupplier.get();
+        return message;
+    }
+
+    /**
+     * @return Exception causing failure, null if failure was reported without exception.
+     */
+    public CertificateValidationException getException() {
+        return exception;
+    }
+
+    /**
+     * @return Exception representing failure, null if validation succeeded.
+     */
+    public CertificateValidationException toException() {
+        if (isValid())
+            return null;
+        if (exception != null)
+            return exception;
+        if (failureCode == FailureCode.ERROR)
+            return new CertificateValidationException(getMessage());
+        return new FailedValidationException(getMessage());
+    }
+
+    /**
+     * Bridges to the exception based API.
+     *
+     * @return Report of successful validation.
+     * @throws CertificateValidationException representing failure.
+     */
+    public Report orThrow() throws CertificateValidationException {
+        if (!isValid())
+            throw toException();
+        return report;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationOutcome{valid}" : String.format("ValidationOutcome{%s: %s}", failureCode, getMessage());
+    }
+}
@@ -1,6 +1,8 @@
 package no.idporten.validator.certificate.api;
 
 import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Defines a validator rule. Made as simple as possible by purpose.
@@ -21,4 +23,32 @@ public interface ValidatorRule {
      * @throws CertificateValidationException
      */
     Report validate(X509Certificate certificate, Report report) throws CertificateValidationException;
+
+    /**
+     * Validate certificate without throwing exceptions for failed validations. Rules reporting failures without
+     * exceptions override this method.
+     * @param certificate Certificate subject to validation.
+     * @param report Report to be filled during validation.
+     * @return Outcome of validation.
+     */
+    default ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        try {
+            return ValidationOutcome.success(validate(certificate, report));
+        } catch (CertificateValidationException e) {
+            return ValidationOutcome.failure(e);
+        }
+    }
+
+    /**
+     * Validate certificate asynchronously. Rules performing only computation complete synchronously in calling
+     * thread, rules performing blocking work (I/O, chain building) override this method to perform the work using
+     * provided executor.
+     * @param certificate Certificate subject to validation.
+     * @param report Report to be filled during validation.
+     * @param executor Executor used for blocking work.
+     * @return Outcome of validation when completed.
+     */
+    default CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        return CompletableFuture.completedFuture(validateToResult(certificate, report));
+    }
 }
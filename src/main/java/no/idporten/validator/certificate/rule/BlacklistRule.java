@@ -3,14 +3,17 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateBucket;
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
 import java.security.cert.X509Certificate;
 
 /**
  * @author erlend
  */
-public class BlacklistRule extends AbstractRule {
+public class BlacklistRule extends AbstractRule implements IndependentRule {
 
     private final CertificateBucket certificates;
 
@@ -19,10 +22,19 @@ public class BlacklistRule extends AbstractRule {
     }
 
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
-        for (X509Certificate cert : certificates) {
-            if (cert.equals(certificate))
-                throw new FailedValidationException("Certificate is blacklisted.");
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        try {
+            if (certificates.contains(certificate))
+                return ValidationOutcome.failure(FailureCode.BLACKLISTED, "Certificate is blacklisted.");
+
+            return ValidationOutcome.success(report);
+        } catch (CertificateValidationException e) {
+            return ValidationOutcome.failure(e);
         }
     }
 }
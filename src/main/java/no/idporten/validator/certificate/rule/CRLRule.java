@@ -1,30 +1,67 @@
 package no.idporten.validator.certificate.rule;
 
+import no.idporten.validator.certificate.api.AsyncCrlFetcher;
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.CrlCache;
 import no.idporten.validator.certificate.api.CrlFetcher;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Property;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.util.CrlUtils;
+import no.idporten.validator.certificate.util.ParsedCertificate;
+import no.idporten.validator.certificate.util.RevocationIndex;
+import no.idporten.validator.certificate.util.RevocationIndexFetcher;
 import no.idporten.validator.certificate.util.SimpleCachingCrlFetcher;
 import no.idporten.validator.certificate.util.SimpleCrlCache;
-import org.bouncycastle.asn1.DERIA5String;
-import org.bouncycastle.asn1.x509.CRLDistPoint;
-import org.bouncycastle.asn1.x509.DistributionPoint;
-import org.bouncycastle.asn1.x509.GeneralName;
-import org.bouncycastle.asn1.x509.GeneralNames;
-import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
-
-import java.io.IOException;
+import no.idporten.validator.certificate.util.SimpleProperty;
+import no.idporten.validator.certificate.util.SimpleRevocationIndexFetcher;
+
+import java.security.cert.CRLReason;
 import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+public class CRLRule extends AbstractRule implements IndependentRule {
 
-public class CRLRule extends AbstractRule {
+    /**
+     * Earliest next update of CRLs consulted during validation.
+     */
+    public static final Property<Date> NEXT_UPDATE = SimpleProperty.create();
 
-    private static final String CRL_EXTENSION = "2.5.29.31";
+    private static final String REVOKED = "Certificate is revoked.";
 
     private CrlFetcher crlFetcher;
 
+    private RevocationIndexFetcher revocationIndexFetcher;
+
+    /**
+     * Creates rule looking up revoked certificates in compact revocation indexes rather than full CRLs.
+     */
+    public static CRLRule withRevocationIndex() {
+        return withRevocationIndex(new SimpleRevocationIndexFetcher());
+    }
+
+    /**
+     * Creates rule looking up revoked certificates in compact revocation indexes rather than full CRLs.
+     *
+     * @param revocationIndexFetcher Fetcher of revocation indexes.
+     */
+    public static CRLRule withRevocationIndex(RevocationIndexFetcher revocationIndexFetcher) {
+        CRLRule rule = new CRLRule((CrlFetcher) null);
+        rule.revocationIndexFetcher = revocationIndexFetcher;
+        return rule;
+    }
+
     public CRLRule(CrlFetcher crlFetcher) {
         this.crlFetcher = crlFetcher;
     }
@@ -41,33 +78,151 @@ public class CRLRule extends AbstractRule {
      * {@inheritDoc}
      */
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
-        List<String> urls = getCrlDistributionPoints(certificate);
-        for (String url : urls) {
-            X509CRL crl = crlFetcher.get(url);
-            if (crl != null)
-                if (crl.isRevoked(certificate))
-                    throw new FailedValidationException("Certificate is revoked.");
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        try {
+            return validate(ParsedCertificate.of(certificate), report, url -> crlFetcher.get(url));
+        } catch (CertificateValidationException e) {
+            return ValidationOutcome.failure(e);
         }
     }
 
-    public static List<String> getCrlDistributionPoints(X509Certificate certificate) throws CertificateValidationException {
+    /**
+     * CRLs given by the certificate are fetched without blocking when the CRL fetcher is an {@link AsyncCrlFetcher},
+     * and validation completes in calling thread when all CRLs are cached. Delta CRLs only given by a base CRL are
+     * fetched without blocking when the base CRL is available. Other fetchers are used from provided executor.
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        if (revocationIndexFetcher != null || !(crlFetcher instanceof AsyncCrlFetcher))
+            return CompletableFuture.supplyAsync(() -> validateToResult(certificate, report), executor);
+
+        AsyncCrlFetcher asyncCrlFetcher = (AsyncCrlFetcher) crlFetcher;
+        ParsedCertificate parsed = ParsedCertificate.of(certificate);
+        Map<String, CompletableFuture<X509CRL>> crls = new HashMap<>();
+        try {
+            for (String url : parsed.getCrlDistributionPoints())
+                crls.computeIfAbsent(url, u -> asyncCrlFetcher.getAsync(u, executor));
+            for (String url : parsed.getFreshestCrlDistributionPoints())
+                crls.computeIfAbsent(url, u -> asyncCrlFetcher.getAsync(u, executor));
+        } catch (CertificateValidationException e) {
+            return CompletableFuture.completedFuture(ValidationOutcome.failure(e));
+        }
+
+        return allOf(crls).thenCompose(ignored -> {
+            // Delta CRLs only given by base CRLs.
+            if (parsed.getFreshestCrlDistributionPoints().isEmpty())
+                for (CompletableFuture<X509CRL> crl : new ArrayList<>(crls.values())) {
+                    X509CRL base = crl.isCompletedExceptionally() ? null : crl.join();
+                    if (base != null)
+                        for (String url : CrlUtils.getFreshestCrlDistributionPoints(base))
+                            crls.computeIfAbsent(url, u -> asyncCrlFetcher.getAsync(u, executor));
+                }
+
+            return allOf(crls);
+        }).thenApply(ignored -> {
+            try {
+                return validate(parsed, report, url -> {
+                    CompletableFuture<X509CRL> crl = crls.get(url);
+                    return crl == null ? null : join(url, crl);
+                });
+            } catch (CertificateValidationException e) {
+                return ValidationOutcome.failure(e);
+            }
+        });
+    }
+
+    /**
+     * @return Future completed when all CRLs are fetched, successfully or not.
+     */
+    private static CompletableFuture<Void> allOf(Map<String, CompletableFuture<X509CRL>> crls) {
+        return CompletableFuture.allOf(crls.values().toArray(new CompletableFuture[0]))
+                .handle((ignored, throwable) -> null);
+    }
+
+    private ValidationOutcome validate(ParsedCertificate certificate, Report report, CrlFetcher crls) throws CertificateValidationException {
+        for (String url : certificate.getCrlDistributionPoints()) {
+            if (revocationIndexFetcher != null) {
+                RevocationIndex index = revocationIndexFetcher.get(url, certificate.getFreshestCrlDistributionPoints());
+                if (index != null) {
+                    if (index.isRevoked(certificate))
+                        return ValidationOutcome.failure(FailureCode.REVOKED, REVOKED);
+
+                    updateNextUpdate(report, index.getNextUpdate());
+                    if (index.getBase() != null)
+                        updateNextUpdate(report, index.getBase().getNextUpdate());
+                }
+            } else {
+                X509CRL crl = crls.get(url);
+                if (crl != null) {
+                    X509CRL delta = getDelta(certificate, crl, crls);
+                    if (isRevoked(certificate, crl, delta))
+                        return ValidationOutcome.failure(FailureCode.REVOKED, REVOKED);
+
+                    updateNextUpdate(report, crl.getNextUpdate());
+                    if (delta != null)
+                        updateNextUpdate(report, delta.getNextUpdate());
+                }
+            }
+        }
+
+        return ValidationOutcome.success(report);
+    }
+
+    private static X509CRL join(String url, CompletableFuture<X509CRL> crl) throws CertificateValidationException {
         try {
-            ArrayList<String> urls = new ArrayList<>();
-            if (!certificate.getNonCriticalExtensionOIDs().contains(CRL_EXTENSION))
-                return urls;
-
-            CRLDistPoint distPoint = CRLDistPoint.getInstance(JcaX509ExtensionUtils.parseExtensionValue(certificate.getExtensionValue(CRL_EXTENSION)));
-            for (DistributionPoint dp : distPoint.getDistributionPoints())
-                for (GeneralName name : ((GeneralNames) dp.getDistributionPoint().getName()).getNames())
-                    if (name.getTagNo() == GeneralName.uniformResourceIdentifier)
-                        urls.add(((DERIA5String) name.getName()).getString());
-
-            return urls;
-        } catch (NullPointerException e) {
-            throw new CertificateValidationException(null);
-        } catch (IOException e) {
-            throw new CertificateValidationException(e.getMessage(), e);
+            return crl.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CertificateValidationException)
+                throw (CertificateValidationException) e.getCause();
+            throw new CertificateValidationException(String.format("Failed to fetch CRL '%s'", url), e.getCause());
         }
     }
+
+    /**
+     * Fetches delta CRL given by Freshest CRL-extension of certificate, or of base CRL if not given by certificate.
+     *
+     * @return First delta CRL applicable to base CRL, null if none.
+     */
+    private static X509CRL getDelta(ParsedCertificate certificate, X509CRL crl, CrlFetcher crls) throws CertificateValidationException {
+        List<String> deltaUrls = certificate.getFreshestCrlDistributionPoints();
+        if (deltaUrls.isEmpty())
+            deltaUrls = CrlUtils.getFreshestCrlDistributionPoints(crl);
+
+        for (String deltaUrl : deltaUrls) {
+            X509CRL delta = crls.get(deltaUrl);
+            if (delta != null && CrlUtils.isDeltaOf(delta, crl))
+                return delta;
+        }
+
+        return null;
+    }
+
+    /**
+     * Entries of delta CRL take precedence over base CRL, entries removed from CRL by delta CRL are not revoked.
+     */
+    private static boolean isRevoked(X509Certificate certificate, X509CRL crl, X509CRL delta) {
+        X509CRLEntry entry = delta == null ? null : delta.getRevokedCertificate(certificate);
+        return entry == null ? crl.isRevoked(certificate) : entry.getRevocationReason() != CRLReason.REMOVE_FROM_CRL;
+    }
+
+    private static void updateNextUpdate(Report report, Date nextUpdate) {
+        if (nextUpdate == null)
+            return;
+
+        Date current = report.get(NEXT_UPDATE);
+        if (current == null || nextUpdate.before(current))
+            report.set(NEXT_UPDATE, nextUpdate);
+    }
+
+    public static List<String> getCrlDistributionPoints(X509Certificate certificate) throws CertificateValidationException {
+        return ParsedCertificate.of(certificate).getCrlDistributionPoints();
+    }
 }
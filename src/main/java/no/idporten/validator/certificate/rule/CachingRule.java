@@ -0,0 +1,247 @@
+package no.idporten.validator.certificate.rule;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.Property;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.util.ArrayReport;
+import no.idporten.validator.certificate.util.CertificateUtils;
+
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches results of encapsulated rule using SHA-256 fingerprint of certificate as key. Both successful validations
+ * (with their report) and failed validations are cached. An entry expires at the earliest of expiration of the
+ * certificate, next update of CRLs consulted during validation and configured time to live.
+ * <p/>
+ * Errors not being failed validations, e.g. caused by unavailable resources, are never cached. This includes
+ * successful validations where an error was allowed to occur by {@link HandleErrorRule}.
+ */
+public class CachingRule extends AbstractRule {
+
+    /**
+     * Default time to live for cached results is 5 minutes.
+     */
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Default maximum number of cached results.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final ValidatorRule validatorRule;
+
+    private final long ttlMillis;
+
+    private final Map<String, CachedOutcome> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingRule(ValidatorRule validatorRule) {
+        this(validatorRule, DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param validatorRule Rule subject to caching.
+     * @param ttlMillis     Maximum time to live for cached results.
+     * @param maxEntries    Maximum number of cached results, least recently used results are evicted first.
+     */
+    public CachingRule(ValidatorRule validatorRule, long ttlMillis, int maxEntries) {
+        this.validatorRule = validatorRule;
+        this.ttlMillis = ttlMillis;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedOutcome> eldest) {
+                if (size() <= maxEntries)
+                    return false;
+
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        String fingerprint;
+        try {
+            fingerprint = CertificateUtils.fingerprint(certificate);
+        } catch (CertificateValidationException e) {
+            return ValidationOutcome.failure(e);
+        }
+
+        long now = System.currentTimeMillis();
+
+        ValidationOutcome cached = lookup(fingerprint, now, report);
+        if (cached != null)
+            return cached;
+
+        return store(fingerprint, now, certificate, validatorRule.validateToResult(certificate, ArrayReport.newInstance()), report);
+    }
+
+    /**
+     * Cached results complete synchronously, otherwise encapsulated rule is validated asynchronously.
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        String fingerprint;
+        try {
+            fingerprint = CertificateUtils.fingerprint(certificate);
+        } catch (CertificateValidationException e) {
+            return CompletableFuture.completedFuture(ValidationOutcome.failure(e));
+        }
+
+        long now = System.currentTimeMillis();
+
+        ValidationOutcome cached = lookup(fingerprint, now, report);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        return validatorRule.validateAsync(certificate, ArrayReport.newInstance(), executor)
+                .thenApply(outcome -> store(fingerprint, now, certificate, outcome, report));
+    }
+
+    /**
+     * @return Cached outcome copied to report, null if not cached.
+     */
+    private ValidationOutcome lookup(String fingerprint, long now, Report report) {
+        CachedOutcome entry;
+        synchronized (cache) {
+            entry = cache.get(fingerprint);
+            if (entry != null && entry.expires <= now) {
+                cache.remove(fingerprint);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+
+        if (entry.failure != null)
+            return entry.failure;
+
+        return ValidationOutcome.success(copy(entry.report, report));
+    }
+
+    /**
+     * Caches outcome of encapsulated rule.
+     *
+     * @return Outcome copied to report.
+     */
+    private ValidationOutcome store(String fingerprint, long now, X509Certificate certificate, ValidationOutcome outcome, Report report) {
+        long expires = Math.min(now + ttlMillis, certificate.getNotAfter().getTime());
+
+        if (outcome.isValid()) {
+            Report result = outcome.getReport();
+
+            if (result.get(HandleErrorRule.HANDLED_ERROR) != null)
+                return ValidationOutcome.success(copy(result, report));
+
+            Date nextUpdate = result.get(CRLRule.NEXT_UPDATE);
+            if (nextUpdate != null)
+                expires = Math.min(expires, nextUpdate.getTime());
+
+            put(fingerprint, new CachedOutcome(result, null, expires));
+
+            return ValidationOutcome.success(copy(result, report));
+        }
+
+        if (outcome.getFailureCode() != FailureCode.ERROR)
+            put(fingerprint, new CachedOutcome(null, outcome, expires));
+
+        return outcome;
+    }
+
+    private void put(String fingerprint, CachedOutcome entry) {
+        synchronized (cache) {
+            cache.put(fingerprint, entry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Report copy(Report source, Report target) {
+        for (Property key : source.keys())
+            target.set(key, source.get(key));
+
+        return target;
+    }
+
+    /**
+     * @return Rule subject to caching.
+     */
+    public ValidatorRule getValidatorRule() {
+        return validatorRule;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return Number of results currently in cache, including expired results not yet removed.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static class CachedOutcome {
+
+        final Report report;
+
+        final ValidationOutcome failure;
+
+        final long expires;
+
+        CachedOutcome(Report report, ValidationOutcome failure, long expires) {
+            this.report = report;
+            this.failure = failure;
+            this.expires = expires;
+        }
+    }
+}
@@ -2,31 +2,39 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.*;
 import no.idporten.validator.certificate.util.BCHelper;
+import no.idporten.validator.certificate.util.ParsedCertificate;
 import no.idporten.validator.certificate.util.SimpleProperty;
 
 import java.security.GeneralSecurityException;
 import java.security.cert.*;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Validator checking validity of chain using root certificates and intermediate certificates.  This validator
  * can also check policies.  The PolicyRule can be used for a more flexible policy validation with wildcards.
  */
-public class ChainRule extends AbstractRule {
+public class ChainRule extends AbstractRule implements IndependentRule {
 
     public static final Property<List<? extends Certificate>> PATH = SimpleProperty.create();
 
     public static final Property<X509Certificate> ANCHOR = SimpleProperty.create();
 
+    private static final ThreadLocal<CertPathBuilder> BUILDERS = new ThreadLocal<>();
+
     private CertificateBucket rootCertificates;
 
     private CertificateBucket intermediateCertificates;
 
     private Set<String> policies = new HashSet<>();
 
+    private volatile TrustMaterial trustMaterial;
+
     /**
      * @param rootCertificates         Trusted root certificates.
      * @param intermediateCertificates Trusted intermediate certificates.
@@ -38,13 +46,27 @@ public class ChainRule extends AbstractRule {
         this.policies.addAll(Arrays.asList(policies));
     }
 
+    /**
+     * @return Trusted root certificates.
+     */
+    public CertificateBucket getRootCertificates() {
+        return rootCertificates;
+    }
+
+    /**
+     * @return Trusted intermediate certificates.
+     */
+    public CertificateBucket getIntermediateCertificates() {
+        return intermediateCertificates;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
         try {
-            PKIXCertPathBuilderResult result = verifyCertificate(certificate);
+            PKIXCertPathBuilderResult result = verifyCertificate(ParsedCertificate.unwrap(certificate));
 
             report.set(ANCHOR, result.getTrustAnchor().getTrustedCert());
             report.set(PATH, result.getCertPath().getCertificates());
@@ -55,44 +77,113 @@ public class ChainRule extends AbstractRule {
         }
     }
 
+    /**
+     * Chain is built using provided executor.
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> validateToResult(certificate, report), executor);
+    }
+
     /**
      * Source: http://www.nakov.com/blog/2009/12/01/x509-certificate-validation-in-java-build-and-verify-chain-and-verify-clr-with-bouncy-castle/
      */
     private PKIXCertPathBuilderResult verifyCertificate(X509Certificate cert) throws GeneralSecurityException {
+        TrustMaterial trustMaterial = getTrustMaterial();
+
         // Create the selector that specifies the starting certificate
         X509CertSelector selector = new X509CertSelector();
         selector.setCertificate(cert);
 
-        // Create the trust anchors (set of root CA certificates)
-        Set<TrustAnchor> trustAnchors = new HashSet<>();
-        for (X509Certificate trustedRootCert : rootCertificates) {
-            trustAnchors.add(new TrustAnchor(trustedRootCert, null));
-        }
+        // Copy prepared parameters, leaving shared parameters untouched
+        PKIXBuilderParameters pkixParams = (PKIXBuilderParameters) trustMaterial.parameters.clone();
+        pkixParams.setTargetCertConstraints(selector);
 
-        // Configure the PKIX certificate builder algorithm parameters
-        PKIXBuilderParameters pkixParams = new PKIXBuilderParameters(trustAnchors, selector);
+        // Specify the certificate subject to validation
+        pkixParams.addCertStore(CertStore.getInstance("Collection",
+                new CollectionCertStoreParameters(Collections.singleton(cert)), BCHelper.PROVIDER));
 
-        // Setting explicit policy
-        if (!policies.isEmpty()) {
-            pkixParams.setInitialPolicies(policies);
-            pkixParams.setExplicitPolicyRequired(true);
+        // Build and verify the certification chain
+        return (PKIXCertPathBuilderResult) getBuilder().build(pkixParams);
+    }
+
+    /**
+     * Builders are not safe for concurrent use, each thread reuses its own builder.
+     */
+    private CertPathBuilder getBuilder() throws GeneralSecurityException {
+        CertPathBuilder builder = BUILDERS.get();
+        if (builder == null) {
+            builder = CertPathBuilder.getInstance("PKIX", BCHelper.PROVIDER);
+            BUILDERS.set(builder);
         }
 
-        // Disable CRL checks (this is done manually as additional step)
-        pkixParams.setRevocationEnabled(false);
+        return builder;
+    }
 
-        // Specify a list of intermediate certificates
-        Set<X509Certificate> trustedIntermediateCert = new HashSet<>();
-        for (X509Certificate certificate : intermediateCertificates) {
-            trustedIntermediateCert.add(certificate);
+    /**
+     * Trust material is created once and reused until a new version of a certificate bucket is reported.
+     */
+    private TrustMaterial getTrustMaterial() throws GeneralSecurityException {
+        long rootVersion = rootCertificates.getVersion();
+        long intermediateVersion = intermediateCertificates.getVersion();
+
+        TrustMaterial current = trustMaterial;
+        if (current == null || current.rootVersion != rootVersion || current.intermediateVersion != intermediateVersion) {
+            current = new TrustMaterial(rootVersion, intermediateVersion);
+            trustMaterial = current;
         }
-        trustedIntermediateCert.add(cert);
 
-        pkixParams.addCertStore(CertStore.getInstance("Collection",
-                new CollectionCertStoreParameters(trustedIntermediateCert), BCHelper.PROVIDER));
+        return current;
+    }
 
-        // Build and verify the certification chain
-        CertPathBuilder builder = CertPathBuilder.getInstance("PKIX", BCHelper.PROVIDER);
-        return (PKIXCertPathBuilderResult) builder.build(pkixParams);
+    /**
+     * Immutable snapshot of trust anchors and intermediate certificates.
+     */
+    private class TrustMaterial {
+
+        final long rootVersion;
+
+        final long intermediateVersion;
+
+        final Set<TrustAnchor> trustAnchors;
+
+        final CertStore intermediateCertificates;
+
+        /**
+         * Parameters shared by validations, to be cloned before use.
+         */
+        final PKIXBuilderParameters parameters;
+
+        TrustMaterial(long rootVersion, long intermediateVersion) throws GeneralSecurityException {
+            this.rootVersion = rootVersion;
+            this.intermediateVersion = intermediateVersion;
+
+            // Create the trust anchors (set of root CA certificates)
+            Set<TrustAnchor> trustAnchors = new HashSet<>();
+            for (X509Certificate trustedRootCert : rootCertificates)
+                trustAnchors.add(new TrustAnchor(trustedRootCert, null));
+            this.trustAnchors = Collections.unmodifiableSet(trustAnchors);
+
+            Set<X509Certificate> trustedIntermediateCert = new HashSet<>();
+            for (X509Certificate certificate : ChainRule.this.intermediateCertificates)
+                trustedIntermediateCert.add(certificate);
+            this.intermediateCertificates = CertStore.getInstance("Collection",
+                    new CollectionCertStoreParameters(trustedIntermediateCert), BCHelper.PROVIDER);
+
+            // Configure the PKIX certificate builder algorithm parameters
+            this.parameters = new PKIXBuilderParameters(this.trustAnchors, null);
+
+            // Setting explicit policy
+            if (!policies.isEmpty()) {
+                parameters.setInitialPolicies(policies);
+                parameters.setExplicitPolicyRequired(true);
+            }
+
+            // Disable CRL checks (this is done manually as additional step)
+            parameters.setRevocationEnabled(false);
+
+            // Specify the list of intermediate certificates
+            parameters.addCertStore(intermediateCertificates);
+        }
     }
 }
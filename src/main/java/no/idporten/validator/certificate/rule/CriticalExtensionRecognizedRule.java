@@ -1,14 +1,17 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
-public class CriticalExtensionRecognizedRule extends AbstractRule {
+public class CriticalExtensionRecognizedRule extends AbstractRule implements IndependentRule {
 
     private final List<String> recognizedExtensions;
 
@@ -20,20 +23,30 @@ public class CriticalExtensionRecognizedRule extends AbstractRule {
      * {@inheritDoc}
      */
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
         Set<String> oids = certificate.getCriticalExtensionOIDs();
 
         if (oids == null)
-            return;
+            return ValidationOutcome.success(report);
 
         for (String oid : oids) {
             if (!recognizedExtensions.contains(oid)) {
-                throw new FailedValidationException(String.format(
+                return ValidationOutcome.failure(FailureCode.CRITICAL_EXTENSION, () -> String.format(
                         "X509 certificate %s specifies a critical extension %s which is not recognized",
                         certificate.getSerialNumber(),
                         oid
                 ));
             }
         }
+
+        return ValidationOutcome.success(report);
     }
 }
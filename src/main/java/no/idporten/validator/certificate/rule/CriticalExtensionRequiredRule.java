@@ -1,7 +1,10 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
@@ -9,7 +12,7 @@ import java.util.List;
 import java.util.Set;
 
 
-public class CriticalExtensionRequiredRule extends AbstractRule {
+public class CriticalExtensionRequiredRule extends AbstractRule implements IndependentRule {
 
     private List<String> requiredExtensions;
 
@@ -21,14 +24,25 @@ public class CriticalExtensionRequiredRule extends AbstractRule {
      * {@inheritDoc}
      */
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
         Set<String> oids = certificate.getCriticalExtensionOIDs();
 
         if (oids == null)
-            throw new FailedValidationException("Certificate doesn't contain critical OIDs.");
+            return ValidationOutcome.failure(FailureCode.CRITICAL_EXTENSION, "Certificate doesn't contain critical OIDs.");
 
         for (String oid : requiredExtensions)
             if (!oids.contains(oid))
-                throw new FailedValidationException(String.format("Certificate doesn't contain critical OID '%s'.", oid));
+                return ValidationOutcome.failure(FailureCode.CRITICAL_EXTENSION,
+                        () -> String.format("Certificate doesn't contain critical OID '%s'.", oid));
+
+        return ValidationOutcome.success(report);
     }
 }
@@ -1,14 +1,17 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
 import java.security.cert.X509Certificate;
 
 /**
  * Throws an exception on validation if message is set.
  */
-public class DummyRule extends AbstractRule {
+public class DummyRule extends AbstractRule implements IndependentRule {
 
     public static DummyRule alwaysSuccess() {
         return new DummyRule();
@@ -39,8 +42,18 @@ public class DummyRule extends AbstractRule {
      * {@inheritDoc}
      */
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
         if (message != null)
-            throw new FailedValidationException(message);
+            return ValidationOutcome.failure(FailureCode.FAILED, message);
+
+        return ValidationOutcome.success(report);
     }
 }
@@ -1,27 +1,45 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
-import java.security.cert.CertificateExpiredException;
-import java.security.cert.CertificateNotYetValidException;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 
 /**
  * Validate validity of certificate.
  */
-public class ExpirationRule extends AbstractRule {
+public class ExpirationRule extends AbstractRule implements IndependentRule {
 
+    private static final String MESSAGE = "Certificate does not have a valid expiration date.";
 
     /**
      * {@inheritDoc}
      */
     @Override
     public void validate(X509Certificate certificate) throws FailedValidationException {
-        try {
-            certificate.checkValidity(new Date());
-        } catch (CertificateNotYetValidException | CertificateExpiredException e) {
-            throw new FailedValidationException("Certificate does not have a valid expiration date.");
-        }
+        if (!isValid(certificate, new Date()))
+            throw new FailedValidationException(MESSAGE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        if (!isValid(certificate, new Date()))
+            return ValidationOutcome.failure(FailureCode.EXPIRED, MESSAGE);
+
+        return ValidationOutcome.success(report);
+    }
+
+    /**
+     * Same check as {@link X509Certificate#checkValidity(Date)}, without exceptions.
+     */
+    private static boolean isValid(X509Certificate certificate, Date date) {
+        return !date.before(certificate.getNotBefore()) && !date.after(certificate.getNotAfter());
     }
 }
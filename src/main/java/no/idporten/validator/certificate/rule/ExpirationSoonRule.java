@@ -1,7 +1,10 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
 import java.security.cert.X509Certificate;
 import java.time.Instant;
@@ -13,7 +16,7 @@ import java.util.TimeZone;
 /**
  * Validation making sure certificate doesn't expire in n milliseconds.
  */
-public class ExpirationSoonRule extends AbstractRule {
+public class ExpirationSoonRule extends AbstractRule implements IndependentRule {
 
     private long millis;
 
@@ -25,8 +28,19 @@ public class ExpirationSoonRule extends AbstractRule {
      * {@inheritDoc}
      */
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
         if (certificate.getNotAfter().getTime() < (System.currentTimeMillis() + millis))
-            throw new FailedValidationException(String.format("Certificate expires in less than %s milliseconds.", millis));
+            return ValidationOutcome.failure(FailureCode.EXPIRES_SOON,
+                    () -> String.format("Certificate expires in less than %s milliseconds.", millis));
+
+        return ValidationOutcome.success(report);
     }
 }
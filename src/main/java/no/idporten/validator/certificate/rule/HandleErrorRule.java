@@ -3,7 +3,10 @@ package no.idporten.validator.certificate.rule;
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.ErrorHandler;
 import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.Property;
+import no.idporten.validator.certificate.api.Report;
 import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.util.SimpleProperty;
 
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
@@ -16,6 +19,11 @@ import java.util.List;
  */
 public class HandleErrorRule extends AbstractRule {
 
+    /**
+     * Last error allowed to occur during validation, set in report when an error is handled.
+     */
+    public static final Property<CertificateValidationException> HANDLED_ERROR = SimpleProperty.create();
+
     private ErrorHandler errorHandler;
 
     private final List<ValidatorRule> validatorRules;
@@ -37,6 +45,14 @@ public class HandleErrorRule extends AbstractRule {
         this.validatorRules = validatorRules;
     }
 
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    public List<ValidatorRule> getValidatorRules() {
+        return validatorRules;
+    }
+
     @Override
     public void validate(X509Certificate certificate) throws CertificateValidationException {
         for (ValidatorRule validatorRule : validatorRules) {
@@ -51,4 +67,27 @@ public class HandleErrorRule extends AbstractRule {
             }
         }
     }
+
+    /**
+     * Validates encapsulated rules using the given report, allowing properties set by encapsulated rules to reach
+     * the caller. Errors allowed to occur are marked in report as {@link #HANDLED_ERROR}.
+     */
+    @Override
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        for (ValidatorRule validatorRule : validatorRules) {
+            try {
+                validatorRule.validate(certificate, report);
+            } catch (FailedValidationException e) {
+                throw e;
+            } catch (CertificateValidationException e) {
+                report.set(HANDLED_ERROR, e);
+
+                // Allow handling exceptions.
+                if (errorHandler != null)
+                    errorHandler.handle(e);
+            }
+        }
+
+        return report;
+    }
 }
@@ -1,7 +1,10 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 import no.idporten.validator.certificate.util.KeyUsage;
 
 import java.security.cert.X509Certificate;
@@ -12,7 +15,7 @@ import java.util.List;
 /**
  * @author erlend
  */
-public class KeyUsageRule extends AbstractRule {
+public class KeyUsageRule extends AbstractRule implements IndependentRule {
 
     private KeyUsage[] expectedKeyUsages;
 
@@ -26,12 +29,19 @@ public class KeyUsageRule extends AbstractRule {
     }
 
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
         boolean[] found = certificate.getKeyUsage();
 
         if (!Arrays.equals(expected, found))
-            throw new FailedValidationException(String.format("Expected %s, found %s.",
+            return ValidationOutcome.failure(FailureCode.KEY_USAGE, () -> String.format("Expected %s, found %s.",
                     Arrays.toString(this.expectedKeyUsages), Arrays.toString(prettyprint(found))));
+
+        return ValidationOutcome.success(report);
     }
 
     private KeyUsage[] prettyprint(boolean[] ku) {
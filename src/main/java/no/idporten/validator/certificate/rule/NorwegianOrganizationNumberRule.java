@@ -6,6 +6,7 @@ import no.idporten.validator.certificate.api.PrincipalNameProvider;
 import no.idporten.validator.certificate.api.Property;
 import no.idporten.validator.certificate.api.Report;
 import no.idporten.validator.certificate.util.SimpleProperty;
+import org.bouncycastle.asn1.x500.X500Name;
 
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
@@ -64,23 +65,25 @@ public class NorwegianOrganizationNumberRule extends PrincipalNameRule {
             throw new CertificateValidationException("Certificate is null.");
         }
         try {
+            X500Name subject = getSubject(certificate);
+
             // Fetch organization name.
-            List<String> name = extract(getSubject(certificate), "O");
+            List<String> name = extract(subject, "O");
 
             //matches "C=NO,ST=AKERSHUS,L=FORNEBUVEIEN 1\\, 1366 LYSAKER,O=RF Commfides,SERIALNUMBER=399573952,CN=RF Commfides"
-            for (String value : extract(getSubject(certificate), "SERIALNUMBER"))
+            for (String value : extract(subject, "SERIALNUMBER"))
                 if (patternSerialNumber.matcher(value).matches())
                     return new NorwegianOrganization(value, name.isEmpty() ? null : name.get(0));
 
             //matches "CN=name, OU=None, O=organisasjon - 123456789, L=None, C=None"
-            for (String value : extract(getSubject(certificate), "O")) {
+            for (String value : extract(subject, "O")) {
                 Matcher matcher = patternOrganizationName.matcher(value);
                 if (matcher.matches())
                     return new NorwegianOrganization(matcher.group(1), name.get(0));
             }
 
             //matches "CN=name, OU=None, O=organisasjon - 123456789, L=None, C=None"
-            for (String value : extract(getSubject(certificate), "O")) {
+            for (String value : extract(subject, "O")) {
                 Matcher matcher = patternOrganizationName.matcher(value);
                 if (matcher.matches())
                     return new NorwegianOrganization(matcher.group(1), name.get(0));
@@ -2,26 +2,23 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.IndependentRule;
 import no.idporten.validator.certificate.api.Property;
 import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.util.ParsedCertificate;
 import no.idporten.validator.certificate.util.SimpleProperty;
-import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.x509.CertificatePolicies;
-import org.bouncycastle.asn1.x509.PolicyInformation;
-import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 
 import java.io.IOException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Validator checking certificate policies. At least one of the accepted policies must be present in the certificate.
  * An accepted policy must be specified either as a complete policy string or as a wildcard policy string ending with a "*".
  */
-public class PolicyRule extends AbstractRule {
+public class PolicyRule extends AbstractRule implements IndependentRule {
 
     public static final Property<Set<String>> POLICY = SimpleProperty.create();
 
@@ -50,14 +47,7 @@ public class PolicyRule extends AbstractRule {
     public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
         final Set<String> matchingPolicies = new HashSet<>();
         try {
-            byte[] certificatePoliciesExtensionValues = certificate.getExtensionValue(org.bouncycastle.asn1.x509.Extension.certificatePolicies.getId());
-            CertificatePolicies certificatePolicies = CertificatePolicies.getInstance(JcaX509ExtensionUtils.parseExtensionValue(certificatePoliciesExtensionValues));
-            Set<String> certificatePolicyIdentifiers =
-                    Arrays.stream(certificatePolicies.getPolicyInformation())
-                    .map(PolicyInformation::getPolicyIdentifier)
-                    .map(ASN1ObjectIdentifier::getId)
-                    .collect(Collectors.toSet());
-            matchingPolicies.addAll(findMatchingPolicies(certificatePolicyIdentifiers));
+            matchingPolicies.addAll(findMatchingPolicies(ParsedCertificate.of(certificate).getPolicies()));
         } catch (IOException e) {
             throw new FailedValidationException(e.getMessage(), e);
         }
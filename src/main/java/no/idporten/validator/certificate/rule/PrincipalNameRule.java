@@ -1,12 +1,12 @@
 package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.*;
+import no.idporten.validator.certificate.util.ParsedCertificate;
 import no.idporten.validator.certificate.util.SimpleProperty;
 import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.RFC4519Style;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
@@ -15,7 +15,8 @@ import java.util.Arrays;
 import java.util.List;
 
 /**
- * Validator using defined logic to validate content in principal name of subject or issuer.
+ * Validator using defined logic to validate content in principal name of subject or issuer. The rule is not marked as
+ * {@link IndependentRule}, as the provided {@link PrincipalNameProvider} may have side effects.
  */
 public class PrincipalNameRule extends AbstractRule {
 
@@ -72,11 +73,11 @@ public class PrincipalNameRule extends AbstractRule {
     }
 
     protected static X500Name getIssuer(X509Certificate certificate) throws CertificateEncodingException {
-        return new JcaX509CertificateHolder(certificate).getIssuer();
+        return ParsedCertificate.of(certificate).getIssuer();
     }
 
     protected static X500Name getSubject(X509Certificate certificate) throws CertificateEncodingException {
-        return new JcaX509CertificateHolder(certificate).getSubject();
+        return ParsedCertificate.of(certificate).getSubject();
     }
 
     @SuppressWarnings("all")
@@ -2,6 +2,7 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.IndependentRule;
 import no.idporten.validator.certificate.api.Property;
 import no.idporten.validator.certificate.api.Report;
 import no.idporten.validator.certificate.util.SimpleProperty;
@@ -10,7 +11,7 @@ import java.security.*;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
-public class SigningRule extends AbstractRule {
+public class SigningRule extends AbstractRule implements IndependentRule {
 
     public static final Property<Kind> KIND = SimpleProperty.create();
 
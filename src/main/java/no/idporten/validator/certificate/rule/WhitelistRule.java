@@ -2,14 +2,17 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateBucket;
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 
 import java.security.cert.X509Certificate;
 
 /**
  * @author erlend
  */
-public class WhitelistRule extends AbstractRule {
+public class WhitelistRule extends AbstractRule implements IndependentRule {
 
     private final CertificateBucket certificates;
 
@@ -18,12 +21,19 @@ public class WhitelistRule extends AbstractRule {
     }
 
     @Override
-    public void validate(X509Certificate certificate) throws CertificateValidationException {
-        for (X509Certificate cert : certificates) {
-            if (cert.equals(certificate))
-                return;
-        }
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
 
-        throw new FailedValidationException("Certificate is not in whitelist.");
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        try {
+            if (!certificates.contains(certificate))
+                return ValidationOutcome.failure(FailureCode.NOT_WHITELISTED, "Certificate is not in whitelist.");
+
+            return ValidationOutcome.success(report);
+        } catch (CertificateValidationException e) {
+            return ValidationOutcome.failure(e);
+        }
     }
 }
@@ -8,6 +8,7 @@ import no.idporten.validator.certificate.util.DummyReport;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class AbstractJunction implements ValidatorRule {
@@ -32,6 +33,13 @@ public abstract class AbstractJunction implements ValidatorRule {
         return this;
     }
 
+    /**
+     * @return Rules combined by junction.
+     */
+    public List<ValidatorRule> getRules() {
+        return Collections.unmodifiableList(validatorRules);
+    }
+
     @Override
     public void validate(X509Certificate certificate) throws CertificateValidationException {
         validate(certificate, DummyReport.INSTANCE);
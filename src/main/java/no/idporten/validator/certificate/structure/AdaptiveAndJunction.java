@@ -0,0 +1,263 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * And-junction learning cost and rejection rate of its rules, periodically reordering evaluation to reject invalid
+ * certificates using the cheapest checks. Only consecutive rules marked as {@link IndependentRule} are reordered
+ * among themselves, other rules keep their position and act as barriers.
+ * <p/>
+ * Rules within a group are ordered by average cost divided by rejection rate, which minimizes expected cost of
+ * reaching a verdict. Order is only changed at a fixed interval of validations ({@link #DEFAULT_INTERVAL} by default),
+ * using a stable sort, and the verdict as well as properties reported by a successful validation does not depend on
+ * the order.
+ * <p/>
+ * Only the verdict is stable for rejected certificates. When several rules reject a certificate, the failure returned
+ * is that of the first rejecting rule in current order, so failure code and message may change as order is learned.
+ * Use {@link AndJunction} when failures must be reported in declared order.
+ */
+public class AdaptiveAndJunction extends AbstractJunction {
+
+    /**
+     * Number of validations between each reordering.
+     */
+    public static final int DEFAULT_INTERVAL = 64;
+
+    /**
+     * Weight of latest observation in moving averages.
+     */
+    private static final double ALPHA = 0.1;
+
+    /**
+     * Lowest rejection rate used when ordering, keeping rules never rejecting comparable by cost.
+     */
+    private static final double MIN_REJECTION_RATE = 0.001;
+
+    private final int interval;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private volatile Plan plan;
+
+    public AdaptiveAndJunction(ValidatorRule... validatorRules) {
+        this(DEFAULT_INTERVAL, Arrays.asList(validatorRules));
+    }
+
+    public AdaptiveAndJunction(List<ValidatorRule> validatorRules) {
+        this(DEFAULT_INTERVAL, validatorRules);
+    }
+
+    public AdaptiveAndJunction(int interval, List<ValidatorRule> validatorRules) {
+        super(validatorRules);
+        this.interval = interval;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AbstractJunction addRule(ValidatorRule... validatorRules) {
+        super.addRule(validatorRules);
+        plan = null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AbstractJunction addRule(List<ValidatorRule> validatorRules) {
+        super.addRule(validatorRules);
+        plan = null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        Plan current = getPlan();
+
+        for (int i : current.order) {
+            ValidatorRule validatorRule = current.rules.get(i);
+            Statistics statistics = current.statistics[i];
+
+            long start = System.nanoTime();
+            ValidationOutcome outcome = validatorRule.validateToResult(certificate, report.copy());
+            if (statistics != null)
+                statistics.record(System.nanoTime() - start, !outcome.isValid());
+
+            if (!outcome.isValid())
+                return outcome;
+
+            report = outcome.getReport();
+        }
+
+        return ValidationOutcome.success(report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        Plan current = getPlan();
+        CompletableFuture<ValidationOutcome> result = CompletableFuture.completedFuture(ValidationOutcome.success(report));
+
+        for (int i : current.order) {
+            ValidatorRule validatorRule = current.rules.get(i);
+            Statistics statistics = current.statistics[i];
+
+            result = result.thenCompose(outcome -> {
+                if (!outcome.isValid())
+                    return CompletableFuture.completedFuture(outcome);
+
+                long start = System.nanoTime();
+                return validatorRule.validateAsync(certificate, outcome.getReport().copy(), executor)
+                        .whenComplete((next, throwable) -> {
+                            if (statistics != null && next != null)
+                                statistics.record(System.nanoTime() - start, !next.isValid());
+                        });
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Rules in current order of evaluation.
+     */
+    public List<ValidatorRule> getOrder() {
+        Plan current = plan;
+        if (current == null)
+            current = getPlan();
+
+        List<ValidatorRule> result = new ArrayList<>(current.order.length);
+        for (int i : current.order)
+            result.add(current.rules.get(i));
+        return result;
+    }
+
+    private Plan getPlan() {
+        Plan current = plan;
+        if (current == null) {
+            current = new Plan(new ArrayList<>(validatorRules));
+            plan = current;
+        } else if (counter.incrementAndGet() % interval == 0) {
+            current = current.reorder();
+            plan = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * Immutable order of evaluation sharing statistics with earlier plans of same rules.
+     */
+    private static class Plan {
+
+        final List<ValidatorRule> rules;
+
+        final Statistics[] statistics;
+
+        final int[] order;
+
+        Plan(List<ValidatorRule> rules) {
+            this.rules = rules;
+            this.statistics = new Statistics[rules.size()];
+            this.order = new int[rules.size()];
+
+            for (int i = 0; i < rules.size(); i++) {
+                order[i] = i;
+                if (rules.get(i) instanceof IndependentRule)
+                    statistics[i] = new Statistics();
+            }
+        }
+
+        private Plan(List<ValidatorRule> rules, Statistics[] statistics, int[] order) {
+            this.rules = rules;
+            this.statistics = statistics;
+            this.order = order;
+        }
+
+        /**
+         * Sorts each group of consecutive independent rules by expected cost, using position as tie-breaker.
+         */
+        Plan reorder() {
+            double[] scores = new double[rules.size()];
+            for (int i = 0; i < rules.size(); i++)
+                if (statistics[i] != null)
+                    scores[i] = statistics[i].score();
+
+            Comparator<Integer> comparator = Comparator.<Integer>comparingDouble(i -> scores[i]).thenComparingInt(i -> i);
+
+            int[] result = new int[rules.size()];
+            int start = 0;
+            for (int i = 0; i <= rules.size(); i++) {
+                if (i == rules.size() || statistics[i] == null) {
+                    List<Integer> group = new ArrayList<>();
+                    for (int j = start; j < i; j++)
+                        group.add(j);
+                    group.sort(comparator);
+                    for (int j = start; j < i; j++)
+                        result[j] = group.get(j - start);
+
+                    if (i < rules.size())
+                        result[i] = i;
+                    start = i + 1;
+                }
+            }
+
+            return Arrays.equals(result, order) ? this : new Plan(rules, statistics, result);
+        }
+    }
+
+    /**
+     * Exponentially weighted moving averages of cost and rejection rate of a rule.
+     */
+    private static class Statistics {
+
+        private double cost;
+
+        private double rejectionRate;
+
+        private boolean observed;
+
+        synchronized void record(long nanos, boolean rejected) {
+            if (!observed) {
+                cost = nanos;
+                rejectionRate = rejected ? 1 : 0;
+                observed = true;
+            } else {
+                cost += ALPHA * (nanos - cost);
+                rejectionRate += ALPHA * ((rejected ? 1 : 0) - rejectionRate);
+            }
+        }
+
+        synchronized double score() {
+            return cost / Math.max(rejectionRate, MIN_REJECTION_RATE);
+        }
+    }
+}
@@ -3,10 +3,13 @@ package no.idporten.validator.certificate.structure;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 import no.idporten.validator.certificate.api.ValidatorRule;
 
 import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Allows combining instances of validators using a limited set of logic.
@@ -26,9 +29,37 @@ public class AndJunction extends AbstractJunction {
      */
     @Override
     public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        for (ValidatorRule validatorRule : validatorRules) {
+            ValidationOutcome outcome = validatorRule.validateToResult(certificate, report.copy());
+            if (!outcome.isValid())
+                return outcome;
+
+            report = outcome.getReport();
+        }
+
+        return ValidationOutcome.success(report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        CompletableFuture<ValidationOutcome> result = CompletableFuture.completedFuture(ValidationOutcome.success(report));
+
         for (ValidatorRule validatorRule : validatorRules)
-            report = validatorRule.validate(certificate, report.copy());
+            result = result.thenCompose(outcome -> outcome.isValid()
+                    ? validatorRule.validateAsync(certificate, outcome.getReport().copy(), executor)
+                    : CompletableFuture.completedFuture(outcome));
 
-        return report;
+        return result;
     }
 }
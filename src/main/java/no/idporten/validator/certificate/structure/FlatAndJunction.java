@@ -0,0 +1,64 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * And-junction created by {@link RulePlanner}, copying the report once for all rules rather than once per rule. A
+ * report written to by a failing rule is discarded with the failure of the junction, so rules following a successful
+ * rule always see the same properties as when copying per rule.
+ */
+public class FlatAndJunction extends AbstractJunction {
+
+    public FlatAndJunction(List<ValidatorRule> validatorRules) {
+        super(validatorRules);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        report = report.copy();
+
+        for (ValidatorRule validatorRule : validatorRules) {
+            ValidationOutcome outcome = validatorRule.validateToResult(certificate, report);
+            if (!outcome.isValid())
+                return outcome;
+
+            report = outcome.getReport();
+        }
+
+        return ValidationOutcome.success(report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        CompletableFuture<ValidationOutcome> result = CompletableFuture.completedFuture(ValidationOutcome.success(report.copy()));
+
+        for (ValidatorRule validatorRule : validatorRules)
+            result = result.thenCompose(outcome -> outcome.isValid()
+                    ? validatorRule.validateAsync(certificate, outcome.getReport(), executor)
+                    : CompletableFuture.completedFuture(outcome));
+
+        return result;
+    }
+}
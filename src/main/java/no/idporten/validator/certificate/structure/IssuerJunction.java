@@ -0,0 +1,246 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.CertificateBucket;
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.ChainRule;
+import no.idporten.validator.certificate.util.CertificateUtils;
+import org.bouncycastle.util.encoders.Hex;
+
+import javax.security.auth.x500.X500Principal;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Or-junction dispatching certificates by issuer. Branches being {@link ChainRule}, or and-junctions containing a
+ * {@link ChainRule}, are indexed by subject and Subject Key Identifier of the trusted certificates of that chain, and a
+ * certificate is only validated by the branches trusting its
+ * issuer, found using Authority Key Identifier or issuer of the certificate. Other branches are validated in order
+ * after the indexed branches, and are the only branches validated for certificates of unknown issuers.
+ * <p/>
+ * Index is rebuilt whenever a new version of a certificate bucket of an indexed branch is reported.
+ */
+public class IssuerJunction extends AbstractJunction {
+
+    private volatile Index index;
+
+    public IssuerJunction(ValidatorRule... validatorRules) {
+        super(validatorRules);
+    }
+
+    public IssuerJunction(List<ValidatorRule> validatorRules) {
+        super(validatorRules);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AbstractJunction addRule(ValidatorRule... validatorRules) {
+        super.addRule(validatorRules);
+        index = null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AbstractJunction addRule(List<ValidatorRule> validatorRules) {
+        super.addRule(validatorRules);
+        index = null;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        List<ValidationOutcome> failures = new ArrayList<>();
+
+        for (ValidatorRule validatorRule : getIndex().candidates(certificate)) {
+            ValidationOutcome outcome = validatorRule.validateToResult(certificate, report.copy());
+            if (outcome.isValid())
+                return outcome;
+
+            failures.add(outcome);
+        }
+
+        return failure(certificate, failures);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        List<ValidationOutcome> failures = new ArrayList<>();
+        CompletableFuture<ValidationOutcome> result = CompletableFuture.completedFuture(null);
+
+        for (ValidatorRule validatorRule : getIndex().candidates(certificate))
+            result = result.thenCompose(outcome -> {
+                if (outcome != null && outcome.isValid())
+                    return CompletableFuture.completedFuture(outcome);
+                if (outcome != null)
+                    failures.add(outcome);
+
+                return validatorRule.validateAsync(certificate, report.copy(), executor);
+            });
+
+        return result.thenApply(outcome -> {
+            if (outcome != null && outcome.isValid())
+                return outcome;
+            if (outcome != null)
+                failures.add(outcome);
+
+            return failure(certificate, failures);
+        });
+    }
+
+    private static ValidationOutcome failure(X509Certificate certificate, List<ValidationOutcome> failures) {
+        return ValidationOutcome.failure(FailureCode.JUNCTION, () -> {
+            StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("Or-junction failed with results:");
+            if (failures.isEmpty())
+                stringBuilder.append("\n* No branch trusts issuer ").append(certificate.getIssuerX500Principal().getName());
+            for (ValidationOutcome failure : failures)
+                stringBuilder.append("\n* ").append(failure.getMessage());
+            return stringBuilder.toString();
+        });
+    }
+
+    /**
+     * Index is created once and reused until a new version of a certificate bucket is reported.
+     */
+    private Index getIndex() {
+        Index current = index;
+        if (current == null || current.isOutdated()) {
+            current = new Index(new ArrayList<>(validatorRules));
+            index = current;
+        }
+
+        return current;
+    }
+
+    /**
+     * Immutable snapshot of branches by issuer.
+     */
+    private static class Index {
+
+        private final List<CertificateBucket> buckets = new ArrayList<>();
+
+        private final List<Long> versions = new ArrayList<>();
+
+        private final Map<X500Principal, Set<ValidatorRule>> bySubject = new HashMap<>();
+
+        private final Map<String, Set<ValidatorRule>> byKeyIdentifier = new HashMap<>();
+
+        private final List<ValidatorRule> indexed = new ArrayList<>();
+
+        private final List<ValidatorRule> unindexed = new ArrayList<>();
+
+        Index(List<ValidatorRule> validatorRules) {
+            for (ValidatorRule validatorRule : validatorRules) {
+                ChainRule chainRule = findChainRule(validatorRule);
+                if (chainRule != null) {
+                    index(validatorRule, chainRule.getRootCertificates());
+                    index(validatorRule, chainRule.getIntermediateCertificates());
+                    indexed.add(validatorRule);
+                } else {
+                    unindexed.add(validatorRule);
+                }
+            }
+        }
+
+        /**
+         * Finds chain rule required by rule, looking through and-junctions as all their rules must accept a
+         * certificate.
+         */
+        private static ChainRule findChainRule(ValidatorRule validatorRule) {
+            if (validatorRule instanceof ChainRule)
+                return (ChainRule) validatorRule;
+
+            if (validatorRule instanceof AndJunction || validatorRule instanceof FlatAndJunction
+                    || validatorRule instanceof AdaptiveAndJunction) {
+                for (ValidatorRule rule : ((AbstractJunction) validatorRule).getRules()) {
+                    ChainRule chainRule = findChainRule(rule);
+                    if (chainRule != null)
+                        return chainRule;
+                }
+            }
+
+            return null;
+        }
+
+        private void index(ValidatorRule validatorRule, CertificateBucket bucket) {
+            buckets.add(bucket);
+            versions.add(bucket.getVersion());
+
+            for (X509Certificate certificate : bucket) {
+                bySubject.computeIfAbsent(certificate.getSubjectX500Principal(), k -> new LinkedHashSet<>()).add(validatorRule);
+
+                try {
+                    byte[] keyIdentifier = CertificateUtils.subjectKeyIdentifier(certificate);
+                    if (keyIdentifier != null)
+                        byKeyIdentifier.computeIfAbsent(Hex.toHexString(keyIdentifier), k -> new LinkedHashSet<>()).add(validatorRule);
+                } catch (CertificateValidationException e) {
+                    // Certificate is found by subject only.
+                }
+            }
+        }
+
+        boolean isOutdated() {
+            for (int i = 0; i < buckets.size(); i++)
+                if (buckets.get(i).getVersion() != versions.get(i))
+                    return true;
+
+            return false;
+        }
+
+        /**
+         * Branches possibly accepting certificate, in order of junction with indexed branches first.
+         */
+        List<ValidatorRule> candidates(X509Certificate certificate) {
+            Set<ValidatorRule> trusting = null;
+            try {
+                byte[] keyIdentifier = CertificateUtils.authorityKeyIdentifier(certificate);
+                if (keyIdentifier != null)
+                    trusting = byKeyIdentifier.get(Hex.toHexString(keyIdentifier));
+            } catch (CertificateValidationException e) {
+                // Certificate is dispatched by issuer only.
+            }
+            if (trusting == null)
+                trusting = bySubject.getOrDefault(certificate.getIssuerX500Principal(), Collections.emptySet());
+
+            if (trusting.isEmpty())
+                return unindexed;
+
+            List<ValidatorRule> candidates = new ArrayList<>(trusting.size() + unindexed.size());
+            for (ValidatorRule validatorRule : indexed)
+                if (trusting.contains(validatorRule))
+                    candidates.add(validatorRule);
+            candidates.addAll(unindexed);
+            return candidates;
+        }
+    }
+}
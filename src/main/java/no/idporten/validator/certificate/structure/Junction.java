@@ -20,6 +20,16 @@ public interface Junction {
         return new AndJunction(validatorRules);
     }
 
+    static ValidatorRule adaptiveAnd(ValidatorRule... validatorRules) {
+        return adaptiveAnd(Arrays.asList(validatorRules));
+    }
+
+    static ValidatorRule adaptiveAnd(List<ValidatorRule> validatorRules) {
+        if (validatorRules.size() == 1)
+            return validatorRules.get(0);
+        return new AdaptiveAndJunction(validatorRules);
+    }
+
     static ValidatorRule or(ValidatorRule... validatorRules) {
         return or(Arrays.asList(validatorRules));
     }
@@ -30,6 +40,16 @@ public interface Junction {
         return new OrJunction(validatorRules);
     }
 
+    static ValidatorRule parallelOr(ValidatorRule... validatorRules) {
+        return parallelOr(Arrays.asList(validatorRules));
+    }
+
+    static ValidatorRule parallelOr(List<ValidatorRule> validatorRules) {
+        if (validatorRules.size() == 1)
+            return validatorRules.get(0);
+        return new ParallelOrJunction(validatorRules);
+    }
+
     static ValidatorRule xor(ValidatorRule... validatorRules) {
         return xor(Arrays.asList(validatorRules));
     }
@@ -39,4 +59,14 @@ public interface Junction {
             return validatorRules.get(0);
         return new XorJunction(validatorRules);
     }
+
+    static ValidatorRule issuer(ValidatorRule... validatorRules) {
+        return issuer(Arrays.asList(validatorRules));
+    }
+
+    static ValidatorRule issuer(List<ValidatorRule> validatorRules) {
+        if (validatorRules.size() == 1)
+            return validatorRules.get(0);
+        return new IssuerJunction(validatorRules);
+    }
 }
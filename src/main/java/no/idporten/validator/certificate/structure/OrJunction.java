@@ -1,13 +1,16 @@
 package no.idporten.validator.certificate.structure;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
 import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 import no.idporten.validator.certificate.api.ValidatorRule;
 
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Allows combining instances of validators using a limited set of logic.
@@ -27,21 +30,62 @@ public class OrJunction extends AbstractJunction {
      */
     @Override
     public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
-        List<CertificateValidationException> exceptions = new ArrayList<>();
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        List<ValidationOutcome> failures = new ArrayList<>();
 
         for (ValidatorRule validatorRule : validatorRules) {
-            try {
-                return validatorRule.validate(certificate, report.copy());
-            } catch (CertificateValidationException e) {
-                exceptions.add(e);
-            }
+            ValidationOutcome outcome = validatorRule.validateToResult(certificate, report.copy());
+            if (outcome.isValid())
+                return outcome;
+
+            failures.add(outcome);
         }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("Or-junction failed with results:");
-        for (Exception e : exceptions)
-            stringBuilder.append("\n* ").append(e.getMessage());
+        return failure(failures);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        List<ValidationOutcome> failures = new ArrayList<>();
+        CompletableFuture<ValidationOutcome> result = CompletableFuture.completedFuture(null);
+
+        for (ValidatorRule validatorRule : validatorRules)
+            result = result.thenCompose(outcome -> {
+                if (outcome != null && outcome.isValid())
+                    return CompletableFuture.completedFuture(outcome);
+                if (outcome != null)
+                    failures.add(outcome);
+
+                return validatorRule.validateAsync(certificate, report.copy(), executor);
+            });
+
+        return result.thenApply(outcome -> {
+            if (outcome != null && outcome.isValid())
+                return outcome;
+            if (outcome != null)
+                failures.add(outcome);
+
+            return failure(failures);
+        });
+    }
 
-        throw new FailedValidationException(stringBuilder.toString());
+    private static ValidationOutcome failure(List<ValidationOutcome> failures) {
+        return ValidationOutcome.failure(FailureCode.JUNCTION, () -> {
+            StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("Or-junction failed with results:");
+            for (ValidationOutcome failure : failures)
+                stringBuilder.append("\n* ").append(failure.getMessage());
+            return stringBuilder.toString();
+        });
     }
 }
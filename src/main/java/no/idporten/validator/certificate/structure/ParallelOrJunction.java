@@ -0,0 +1,165 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.util.DefaultExecutor;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Or-junction validating all branches in parallel. Outcome of the first successful branch is returned and remaining
+ * branches are cancelled. Failures are aggregated in order of branches when all branches fail. Suited for expensive
+ * and independent branches, e.g. chain rules of separate issuers or rules performing I/O.
+ * <p/>
+ * Branches are by default executed using {@link DefaultExecutor}. Cancelled branches are not interrupted, as they may
+ * be performing work shared with other validations, e.g. downloading a CRL.
+ */
+public class ParallelOrJunction extends AbstractJunction {
+
+    private final ExecutorService executorService;
+
+    public ParallelOrJunction(ValidatorRule... validatorRules) {
+        this(DefaultExecutor.getInstance(), validatorRules);
+    }
+
+    public ParallelOrJunction(List<ValidatorRule> validatorRules) {
+        this(DefaultExecutor.getInstance(), validatorRules);
+    }
+
+    public ParallelOrJunction(ExecutorService executorService, ValidatorRule... validatorRules) {
+        super(validatorRules);
+        this.executorService = executorService;
+    }
+
+    public ParallelOrJunction(ExecutorService executorService, List<ValidatorRule> validatorRules) {
+        super(validatorRules);
+        this.executorService = executorService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * Branches are validated asynchronously using provided executor, and no thread is blocked waiting for branches.
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        List<ValidatorRule> rules = new ArrayList<>(validatorRules);
+        if (rules.size() == 1)
+            return rules.get(0).validateAsync(certificate, report.copy(), executor);
+
+        CompletableFuture<ValidationOutcome> result = new CompletableFuture<>();
+        ValidationOutcome[] failures = new ValidationOutcome[rules.size()];
+        AtomicInteger remaining = new AtomicInteger(rules.size());
+        List<CompletableFuture<ValidationOutcome>> futures = new ArrayList<>(rules.size());
+
+        for (int i = 0; i < rules.size(); i++) {
+            int branch = i;
+            CompletableFuture<ValidationOutcome> future;
+            try {
+                future = rules.get(i).validateAsync(certificate, report.copy(), executor);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            futures.add(future);
+
+            future.whenComplete((outcome, throwable) -> {
+                if (throwable == null && outcome.isValid()) {
+                    result.complete(outcome);
+                    return;
+                }
+
+                failures[branch] = throwable == null ? outcome : ValidationOutcome.failure(FailureCode.ERROR,
+                        () -> String.valueOf(unwrap(throwable).getMessage()));
+                if (remaining.decrementAndGet() == 0)
+                    result.complete(failure(failures));
+            });
+        }
+
+        result.whenComplete((outcome, throwable) -> futures.forEach(future -> future.cancel(false)));
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        List<ValidatorRule> rules = new ArrayList<>(validatorRules);
+        if (rules.size() == 1)
+            return rules.get(0).validateToResult(certificate, report.copy());
+
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(executorService);
+        ValidationOutcome[] failures = new ValidationOutcome[rules.size()];
+        ValidationOutcome[] outcomes = new ValidationOutcome[rules.size()];
+        List<Future<Integer>> futures = new ArrayList<>(rules.size());
+
+        try {
+            for (int i = 0; i < rules.size(); i++) {
+                int branch = i;
+                ValidatorRule validatorRule = rules.get(i);
+                Report branchReport = report.copy();
+                futures.add(completionService.submit(() -> {
+                    outcomes[branch] = validatorRule.validateToResult(certificate, branchReport);
+                    return branch;
+                }));
+            }
+
+            for (int i = 0; i < rules.size(); i++) {
+                Future<Integer> future = completionService.take();
+                try {
+                    int branch = future.get();
+                    if (outcomes[branch].isValid())
+                        return outcomes[branch];
+
+                    failures[branch] = outcomes[branch];
+                } catch (ExecutionException e) {
+                    failures[futures.indexOf(future)] = ValidationOutcome.failure(FailureCode.ERROR,
+                            () -> String.valueOf(e.getCause().getMessage()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ValidationOutcome.failure(FailureCode.ERROR, "Interrupted while waiting for or-junction.");
+        } finally {
+            for (Future<Integer> future : futures)
+                future.cancel(false);
+        }
+
+        return failure(failures);
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+
+    private static ValidationOutcome failure(ValidationOutcome[] failures) {
+        return ValidationOutcome.failure(FailureCode.JUNCTION, () -> {
+            StringBuilder stringBuilder = new StringBuilder();
+            stringBuilder.append("Or-junction failed with results:");
+            for (ValidationOutcome failure : failures)
+                stringBuilder.append("\n* ").append(failure.getMessage());
+            return stringBuilder.toString();
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.CachingRule;
+import no.idporten.validator.certificate.rule.HandleErrorRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles a tree of rules into an equivalent tree doing less work per validation:
+ * <ul>
+ * <li>Nested and-junctions are flattened into a single {@link FlatAndJunction} copying the report once.</li>
+ * <li>Nested or-junctions are flattened.</li>
+ * <li>Repeated instances of the same rule within an and- or or-junction are only evaluated once.</li>
+ * <li>Junctions with a single rule are replaced by the rule.</li>
+ * </ul>
+ * Other junctions and rules keep their configuration and are kept as is, however rules encapsulated by
+ * {@link HandleErrorRule} are compiled.
+ */
+public final class RulePlanner {
+
+    private static final String INDENT = "  ";
+
+    /**
+     * Compiles tree of rules.
+     *
+     * @param validatorRule Root of tree.
+     * @return Root of compiled tree, the same rule if nothing is to be compiled.
+     */
+    public static ValidatorRule optimize(ValidatorRule validatorRule) {
+        if (validatorRule.getClass() == AndJunction.class || validatorRule instanceof FlatAndJunction) {
+            List<ValidatorRule> rules = new ArrayList<>();
+            flatten(((AbstractJunction) validatorRule).getRules(), true, rules);
+            return rules.size() == 1 ? rules.get(0) : new FlatAndJunction(rules);
+        }
+
+        if (validatorRule.getClass() == OrJunction.class) {
+            List<ValidatorRule> rules = new ArrayList<>();
+            flatten(((AbstractJunction) validatorRule).getRules(), false, rules);
+            return rules.size() == 1 ? rules.get(0) : new OrJunction(rules);
+        }
+
+        if (validatorRule.getClass() == XorJunction.class) {
+            List<ValidatorRule> rules = new ArrayList<>();
+            for (ValidatorRule rule : ((AbstractJunction) validatorRule).getRules())
+                rules.add(optimize(rule));
+            return rules.size() == 1 ? rules.get(0) : new XorJunction(rules);
+        }
+
+        if (validatorRule.getClass() == HandleErrorRule.class) {
+            HandleErrorRule handleErrorRule = (HandleErrorRule) validatorRule;
+            List<ValidatorRule> rules = new ArrayList<>();
+            for (ValidatorRule rule : handleErrorRule.getValidatorRules())
+                rules.add(optimize(rule));
+            return rules.equals(handleErrorRule.getValidatorRules()) ? validatorRule : new HandleErrorRule(handleErrorRule.getErrorHandler(), rules);
+        }
+
+        return validatorRule;
+    }
+
+    /**
+     * Appends compiled rules to result, inlining junctions of the same kind and skipping repeated instances.
+     */
+    private static void flatten(List<ValidatorRule> source, boolean and, List<ValidatorRule> result) {
+        Set<ValidatorRule> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        seen.addAll(result);
+
+        for (ValidatorRule rule : source) {
+            ValidatorRule optimized = optimize(rule);
+            boolean inline = and ? optimized instanceof FlatAndJunction : optimized.getClass() == OrJunction.class;
+            for (ValidatorRule child : inline ? ((AbstractJunction) optimized).getRules() : Collections.singletonList(optimized))
+                if (seen.add(child))
+                    result.add(child);
+        }
+    }
+
+    /**
+     * Describes tree of rules, one rule per line indented by depth.
+     *
+     * @param validatorRule Root of tree.
+     * @return Description of tree.
+     */
+    public static String explain(ValidatorRule validatorRule) {
+        StringBuilder stringBuilder = new StringBuilder();
+        explain(validatorRule, 0, stringBuilder);
+        return stringBuilder.toString();
+    }
+
+    private static void explain(ValidatorRule validatorRule, int depth, StringBuilder stringBuilder) {
+        if (stringBuilder.length() > 0)
+            stringBuilder.append('\n');
+        for (int i = 0; i < depth; i++)
+            stringBuilder.append(INDENT);
+
+        String name = validatorRule.getClass().getSimpleName();
+        stringBuilder.append(name.isEmpty() ? validatorRule.getClass().getName() : name);
+
+        List<ValidatorRule> children = Collections.emptyList();
+        if (validatorRule instanceof AbstractJunction)
+            children = ((AbstractJunction) validatorRule).getRules();
+        else if (validatorRule instanceof HandleErrorRule)
+            children = ((HandleErrorRule) validatorRule).getValidatorRules();
+        else if (validatorRule instanceof CachingRule)
+            children = Collections.singletonList(((CachingRule) validatorRule).getValidatorRule());
+
+        for (ValidatorRule child : children)
+            explain(child, depth + 1, stringBuilder);
+    }
+
+    RulePlanner() {
+        // No action.
+    }
+}
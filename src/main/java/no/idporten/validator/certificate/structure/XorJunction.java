@@ -1,13 +1,16 @@
 package no.idporten.validator.certificate.structure;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
-import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
 import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
 import no.idporten.validator.certificate.api.ValidatorRule;
 
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Allows combining instances of validators using a limited set of logic.
@@ -27,25 +30,60 @@ public class XorJunction extends AbstractJunction {
      */
     @Override
     public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
-        List<CertificateValidationException> exceptions = new ArrayList<>();
+        return validateToResult(certificate, report).orThrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+        List<ValidationOutcome> failures = new ArrayList<>();
 
         for (ValidatorRule validatorRule : validatorRules) {
-            try {
-                report = validatorRule.validate(certificate, report.copy());
-            } catch (CertificateValidationException e) {
-                exceptions.add(e);
-            }
+            ValidationOutcome outcome = validatorRule.validateToResult(certificate, report.copy());
+            if (outcome.isValid())
+                report = outcome.getReport();
+            else
+                failures.add(outcome);
         }
 
-        if (exceptions.size() != validatorRules.size() - 1) {
-            StringBuilder stringBuilder = new StringBuilder();
-            stringBuilder.append(String.format("Xor-junction failed with results (%s of %s):", exceptions.size(), validatorRules.size()));
-            for (Exception e : exceptions)
-                stringBuilder.append("\n* ").append(e.getMessage());
+        return outcome(report, failures);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+        Report[] current = {report};
+        List<ValidationOutcome> failures = new ArrayList<>();
+        CompletableFuture<Void> result = CompletableFuture.completedFuture(null);
+
+        for (ValidatorRule validatorRule : validatorRules)
+            result = result.thenCompose(ignored -> validatorRule.validateAsync(certificate, current[0].copy(), executor))
+                    .thenAccept(outcome -> {
+                        if (outcome.isValid())
+                            current[0] = outcome.getReport();
+                        else
+                            failures.add(outcome);
+                    });
+
+        return result.thenApply(ignored -> outcome(current[0], failures));
+    }
 
-            throw new FailedValidationException(stringBuilder.toString());
+    private ValidationOutcome outcome(Report report, List<ValidationOutcome> failures) {
+        if (failures.size() != validatorRules.size() - 1) {
+            int rules = validatorRules.size();
+            return ValidationOutcome.failure(FailureCode.JUNCTION, () -> {
+                StringBuilder stringBuilder = new StringBuilder();
+                stringBuilder.append(String.format("Xor-junction failed with results (%s of %s):", failures.size(), rules));
+                for (ValidationOutcome failure : failures)
+                    stringBuilder.append("\n* ").append(failure.getMessage());
+                return stringBuilder.toString();
+            });
         }
 
-        return report;
+        return ValidationOutcome.success(report);
     }
 }
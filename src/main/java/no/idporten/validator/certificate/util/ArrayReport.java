@@ -0,0 +1,111 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.Property;
+import no.idporten.validator.certificate.api.Report;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Report keeping values of {@link SimpleProperty} in an array indexed by slot of property. The array grows as
+ * properties are set. Copies share the array until either is changed, making {@link #copy()} a constant time
+ * operation. Values of other implementations of {@link Property} are kept in a map.
+ */
+public class ArrayReport implements Report {
+
+    private static final Object NULL = new Object();
+
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    private static final SimpleProperty<?>[] EMPTY_KEYS = new SimpleProperty<?>[0];
+
+    private Object[] values;
+
+    private SimpleProperty<?>[] keys;
+
+    private Map<Property, Object> others;
+
+    private boolean sharedValues;
+
+    private boolean sharedOthers;
+
+    public static Report newInstance() {
+        return new ArrayReport(EMPTY_VALUES, EMPTY_KEYS, null);
+    }
+
+    private ArrayReport(Object[] values, SimpleProperty<?>[] keys, Map<Property, Object> others) {
+        this.values = values;
+        this.keys = keys;
+        this.others = others;
+    }
+
+    @Override
+    public <T> boolean contains(Property<T> key) {
+        if (key instanceof SimpleProperty) {
+            int slot = ((SimpleProperty<T>) key).getSlot();
+            return slot < values.length && values[slot] != null;
+        }
+
+        return others != null && others.containsKey(key);
+    }
+
+    @Override
+    public <T> void set(Property<T> key, T value) {
+        if (key instanceof SimpleProperty) {
+            int slot = ((SimpleProperty<T>) key).getSlot();
+            if (sharedValues || slot >= values.length) {
+                int length = Math.max(values.length, Math.min(Math.max(slot + 1, values.length * 2), SimpleProperty.slots()));
+                values = Arrays.copyOf(values, length);
+                keys = Arrays.copyOf(keys, length);
+                sharedValues = false;
+            }
+            values[slot] = value == null ? NULL : value;
+            keys[slot] = (SimpleProperty<T>) key;
+        } else {
+            if (others == null)
+                others = new HashMap<>();
+            else if (sharedOthers)
+                others = new HashMap<>(others);
+            sharedOthers = false;
+            others.put(key, value);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Property<T> key) {
+        if (key instanceof SimpleProperty) {
+            int slot = ((SimpleProperty<T>) key).getSlot();
+            Object value = slot < values.length ? values[slot] : null;
+            return value == NULL ? null : (T) value;
+        }
+
+        return others == null ? null : (T) others.get(key);
+    }
+
+    @Override
+    public Set<Property> keys() {
+        Set<Property> keys = new HashSet<>();
+        for (int slot = 0; slot < values.length; slot++)
+            if (values[slot] != null)
+                keys.add(this.keys[slot]);
+        if (others != null)
+            keys.addAll(others.keySet());
+
+        return keys;
+    }
+
+    /**
+     * Creates copy sharing values with this report, values are copied when either report is changed.
+     */
+    @Override
+    public Report copy() {
+        ArrayReport copy = new ArrayReport(values, keys, others);
+        sharedValues = copy.sharedValues = true;
+        sharedOthers = copy.sharedOthers = others != null;
+        return copy;
+    }
+}
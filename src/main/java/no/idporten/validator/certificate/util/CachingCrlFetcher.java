@@ -6,6 +6,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.security.cert.X509CRL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * CrlFetcher that ignores problems with retrieving new CRL file,
@@ -19,14 +21,18 @@ public class CachingCrlFetcher extends SimpleCachingCrlFetcher {
         super(crlCache);
     }
 
+    public CachingCrlFetcher(CrlCache crlCache, CrlHttpClient crlHttpClient) {
+        super(crlCache, crlHttpClient);
+    }
+
     @Override
     public X509CRL get(String url) throws CertificateValidationException {
         X509CRL crl = this.crlCache.get(url);
         try {
             if (crl == null) {
-                crl = this.download(url);
-            } else if (crl.getNextUpdate() != null && crl.getNextUpdate().getTime() < System.currentTimeMillis()) {
-                crl = this.download(url);
+                crl = this.fetch(url);
+            } else if (isOutdated(crl)) {
+                crl = this.fetch(url);
             }
         } catch (CertificateValidationException e) {
             logger.error("Failed to retrieve CRL list", e);
@@ -34,4 +40,15 @@ public class CachingCrlFetcher extends SimpleCachingCrlFetcher {
         return crl;
     }
 
+    @Override
+    public CompletableFuture<X509CRL> getAsync(String url, Executor executor) {
+        return super.getAsync(url, executor).exceptionally(e -> {
+            logger.error("Failed to retrieve CRL list", e);
+            try {
+                return this.crlCache.get(url);
+            } catch (CertificateValidationException ex) {
+                return null;
+            }
+        });
+    }
 }
@@ -6,6 +6,7 @@ import no.idporten.validator.certificate.api.CertificateBucketException;
 import javax.security.auth.x500.X500Principal;
 import java.security.cert.X509Certificate;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Wrapper for certificate bucket. May be used to switch or update certificate buckets on-fly.
@@ -14,6 +15,8 @@ public class CertificateBucketWrapper implements CertificateBucket {
 
     private CertificateBucket certificateBucket;
 
+    private final AtomicLong replacements = new AtomicLong();
+
     public CertificateBucketWrapper(CertificateBucket certificateBucket) {
         this.certificateBucket = certificateBucket;
     }
@@ -26,6 +29,38 @@ public class CertificateBucketWrapper implements CertificateBucket {
         return certificateBucket.findBySubject(principal);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public X509Certificate findBySubjectKeyIdentifier(byte[] keyIdentifier) throws CertificateBucketException {
+        return certificateBucket.findBySubjectKeyIdentifier(keyIdentifier);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public X509Certificate findByFingerprint(String fingerprint) throws CertificateBucketException {
+        return certificateBucket.findByFingerprint(fingerprint);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(X509Certificate certificate) throws CertificateBucketException {
+        return certificateBucket.contains(certificate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVersion() {
+        return (replacements.get() << 32) ^ certificateBucket.getVersion();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -40,5 +75,6 @@ public class CertificateBucketWrapper implements CertificateBucket {
 
     public void setCertificateBucket(CertificateBucket certificateBucket) {
         this.certificateBucket = certificateBucket;
+        this.replacements.incrementAndGet();
     }
 }
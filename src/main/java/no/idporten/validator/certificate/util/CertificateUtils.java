@@ -0,0 +1,80 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+/**
+ * Utilities for certificates.
+ */
+public class CertificateUtils {
+
+    /**
+     * Calculates SHA-256 fingerprint of certificate.
+     *
+     * @param certificate Certificate subject to fingerprinting.
+     * @return Fingerprint as lower case hex.
+     * @throws CertificateValidationException
+     */
+    public static String fingerprint(X509Certificate certificate) throws CertificateValidationException {
+        if (certificate instanceof ParsedCertificate)
+            return ((ParsedCertificate) certificate).getFingerprint();
+
+        try {
+            return Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+        } catch (CertificateEncodingException | NoSuchAlgorithmException e) {
+            throw new CertificateValidationException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Extracts Subject Key Identifier of certificate.
+     *
+     * @param certificate Certificate holding extension.
+     * @return Key identifier, null if extension is not present.
+     * @throws CertificateValidationException
+     */
+    public static byte[] subjectKeyIdentifier(X509Certificate certificate) throws CertificateValidationException {
+        byte[] extensionValue = certificate.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (extensionValue == null)
+            return null;
+
+        try {
+            return SubjectKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extensionValue)).getKeyIdentifier();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CertificateValidationException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Extracts key identifier of Authority Key Identifier of certificate.
+     *
+     * @param certificate Certificate holding extension.
+     * @return Key identifier, null if extension or key identifier is not present.
+     * @throws CertificateValidationException
+     */
+    public static byte[] authorityKeyIdentifier(X509Certificate certificate) throws CertificateValidationException {
+        byte[] extensionValue = certificate.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (extensionValue == null)
+            return null;
+
+        try {
+            return AuthorityKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extensionValue)).getKeyIdentifier();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CertificateValidationException(e.getMessage(), e);
+        }
+    }
+
+    CertificateUtils() {
+        // No action.
+    }
+}
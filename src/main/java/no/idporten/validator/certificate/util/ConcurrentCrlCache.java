@@ -0,0 +1,157 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CrlCache;
+
+import java.security.cert.CRLException;
+import java.security.cert.X509CRL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory CRL cache for concurrent use with a memory budget. Reads do not lock. Each CRL is weighed once by the size
+ * of its encoding when stored, and least recently used CRLs are evicted when the total weight exceeds the budget. The
+ * most recently stored CRL is never evicted, even if it alone exceeds the budget.
+ * <p/>
+ * Eviction frees memory down to {@link #LOW_WATER_MARK} of the budget in one pass, so the cost of finding least
+ * recently used CRLs is shared by the CRLs stored until the budget is exceeded again. The cache may be used as storage
+ * of {@link SimpleCrlCache} and its subclasses.
+ */
+public class ConcurrentCrlCache implements CrlCache {
+
+    /**
+     * Default memory budget is 256 MiB.
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Budget without limit, CRLs are not weighed.
+     */
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    /**
+     * Eviction continues until total weight is below 90 % of budget.
+     */
+    static final double LOW_WATER_MARK = 0.9;
+
+    private final Map<String, Entry> storage = new ConcurrentHashMap<>();
+
+    private final long maxBytes;
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Object evictionLock = new Object();
+
+    public ConcurrentCrlCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes Memory budget as total size of encoded CRLs, {@link #UNBOUNDED} for no budget.
+     */
+    public ConcurrentCrlCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public X509CRL get(String url) {
+        Entry entry = storage.get(url);
+        if (entry == null)
+            return null;
+
+        entry.lastAccess = System.nanoTime();
+        return entry.crl;
+    }
+
+    @Override
+    public void set(String url, X509CRL crl) {
+        if (crl == null) {
+            Entry removed = storage.remove(url);
+            if (removed != null)
+                bytes.addAndGet(-removed.weight);
+            return;
+        }
+
+        Entry entry = new Entry(crl, maxBytes == UNBOUNDED ? 0 : weigh(crl));
+        Entry replaced = storage.put(url, entry);
+        bytes.addAndGet(entry.weight - (replaced == null ? 0 : replaced.weight));
+
+        if (bytes.get() > maxBytes)
+            evict(url);
+    }
+
+    /**
+     * Evicts least recently used CRLs until total weight is below low water mark of budget, keeping CRL of provided
+     * url. Candidates are ordered once per eviction.
+     */
+    private void evict(String keep) {
+        synchronized (evictionLock) {
+            if (bytes.get() <= maxBytes)
+                return;
+
+            List<Map.Entry<String, Entry>> candidates = new ArrayList<>(storage.entrySet());
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccess));
+
+            long target = (long) (maxBytes * LOW_WATER_MARK);
+            for (Map.Entry<String, Entry> candidate : candidates) {
+                if (bytes.get() <= target)
+                    return;
+
+                if (!candidate.getKey().equals(keep) && storage.remove(candidate.getKey(), candidate.getValue())) {
+                    bytes.addAndGet(-candidate.getValue().weight);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static long weigh(X509CRL crl) {
+        try {
+            byte[] encoded = crl.getEncoded();
+            return encoded == null ? 0 : encoded.length;
+        } catch (CRLException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets url's currently in cache. The returned set is a live view, safe to iterate while cache is updated.
+     * @return cache keys
+     */
+    public Set<String> getUrls() {
+        return Collections.unmodifiableSet(storage.keySet());
+    }
+
+    /**
+     * @return Total size of encoded CRLs in cache.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static class Entry {
+
+        final X509CRL crl;
+
+        final long weight;
+
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(X509CRL crl, long weight) {
+            this.crl = crl;
+            this.weight = weight;
+        }
+    }
+}
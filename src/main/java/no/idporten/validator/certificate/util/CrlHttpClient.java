@@ -0,0 +1,216 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.security.cert.CRLException;
+import java.security.cert.X509CRL;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP client for CRL downloads. Validators (ETag and Last-Modified) of downloaded CRLs are kept per url, and a
+ * conditional request is sent when the caller already holds the CRL the validators belong to. A response of 304 Not
+ * Modified returns the CRL held by the caller without transfer or parsing. Responses are read completely, allowing
+ * the underlying connection to be reused.
+ * <p/>
+ * Validators may be stored with cached CRLs and restored using {@link #setValidators(String, Validators)}, allowing
+ * conditional requests after a restart.
+ */
+public class CrlHttpClient {
+
+    /**
+     * Default connect timeout is 10 seconds.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+
+    /**
+     * Default read timeout is 30 seconds.
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static final CrlHttpClient DEFAULT = new CrlHttpClient();
+
+    private final Map<String, Validators> validators = new ConcurrentHashMap<>();
+
+    private final int connectTimeoutMillis;
+
+    private final int readTimeoutMillis;
+
+    /**
+     * @return Client used by {@link CrlUtils}.
+     */
+    public static CrlHttpClient getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Create an instance using default timeouts.
+     */
+    public CrlHttpClient() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param connectTimeoutMillis Timeout when connecting, 0 means no timeout.
+     * @param readTimeoutMillis    Timeout when reading, 0 means no timeout.
+     */
+    public CrlHttpClient(int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * @return Validators of CRL last downloaded from url, null if none.
+     */
+    public Validators getValidators(String url) {
+        return validators.get(url);
+    }
+
+    /**
+     * Restores validators of CRL held by caller, e.g. when loaded from disk.
+     *
+     * @param url        Location of CRL.
+     * @param validators Validators of CRL, null to forget validators.
+     */
+    public void setValidators(String url, Validators validators) {
+        if (validators == null)
+            this.validators.remove(url);
+        else
+            this.validators.put(url, validators);
+    }
+
+    /**
+     * Downloads CRL.
+     *
+     * @param url     Location of CRL.
+     * @param current CRL currently held by caller, may be null.
+     * @return Downloaded CRL, or current CRL if not modified.
+     */
+    public X509CRL download(String url, X509CRL current) throws CertificateValidationException {
+        return get(url, current, current == null ? null : current.getThisUpdate(), CrlUtils::load, X509CRL::getThisUpdate);
+    }
+
+    /**
+     * Downloads CRL as revocation index using streaming parser.
+     *
+     * @param url      Location of CRL.
+     * @param current  Index currently held by caller, may be null.
+     * @param details  Keep revocation date and reason of entries.
+     * @param resolver Resolver of public key of issuer, signature is not verified if null.
+     * @return Downloaded index, or current index if not modified.
+     */
+    public RevocationIndex downloadIndex(String url, RevocationIndex current, boolean details,
+                                         CrlStreamParser.IssuerKeyResolver resolver) throws CertificateValidationException {
+        return get(url, current, current == null ? null : current.getThisUpdate(),
+                inputStream -> CrlUtils.loadIndex(inputStream, details, resolver), RevocationIndex::getThisUpdate);
+    }
+
+    private <T> T get(String url, T current, Date currentThisUpdate, Loader<T> loader, Versioned<T> versioned) throws CertificateValidationException {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setUseCaches(false);
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+
+            Validators known = validators.get(url);
+            boolean conditional = known != null && currentThisUpdate != null && currentThisUpdate.equals(known.thisUpdate);
+            if (conditional) {
+                if (known.etag != null)
+                    connection.setRequestProperty("If-None-Match", known.etag);
+                if (known.lastModified != null)
+                    connection.setRequestProperty("If-Modified-Since", known.lastModified);
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && conditional) {
+                drain(connection);
+                return current;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                drain(connection);
+                throw new IOException(String.format("Unexpected HTTP status %s", status));
+            }
+
+            T result;
+            try (InputStream inputStream = open(connection)) {
+                result = loader.load(inputStream);
+                while (inputStream.read() >= 0) {
+                    // read to end for connection to be reused
+                }
+            }
+
+            String etag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            if (result != null && (etag != null || lastModified != null))
+                validators.put(url, new Validators(etag, lastModified, versioned.getThisUpdate(result)));
+            else
+                validators.remove(url);
+
+            return result;
+        } catch (IOException | CRLException | IllegalArgumentException e) {
+            throw new CertificateValidationException(String.format("Failed to download CRL '%s' (%s)", url, e.getMessage()), e);
+        }
+    }
+
+    private static InputStream open(HttpURLConnection connection) throws IOException {
+        InputStream inputStream = new BufferedInputStream(connection.getInputStream());
+        return "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(inputStream) : inputStream;
+    }
+
+    private static void drain(HttpURLConnection connection) {
+        try (InputStream inputStream = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (inputStream != null)
+                while (inputStream.read() >= 0) {
+                    // read to end for connection to be reused
+                }
+        } catch (IOException e) {
+            // connection is not reused
+        }
+    }
+
+    private interface Loader<T> {
+        T load(InputStream inputStream) throws CRLException, IOException;
+    }
+
+    private interface Versioned<T> {
+        Date getThisUpdate(T t);
+    }
+
+    /**
+     * Validators of a downloaded CRL, belonging to the CRL with the given This update-field.
+     */
+    public static class Validators {
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final Date thisUpdate;
+
+        public Validators(String etag, String lastModified, Date thisUpdate) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.thisUpdate = thisUpdate;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public Date getThisUpdate() {
+            return thisUpdate;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.AsyncCrlFetcher;
+import no.idporten.validator.certificate.api.CertificateBucket;
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.CrlFetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Fetches CRLs of known certificates ahead of validation, e.g. intermediates in the certificate buckets of chain rules
+ * and recently seen leaf certificates. CRLs are fetched concurrently using the CRL fetcher of the CRL rule, storing
+ * them in its cache. Caches refreshing CRLs in the background, like {@link SimpleAsyncCrlCache}, will keep refreshing
+ * CRLs once stored.
+ * <p/>
+ * Each prefetch completes when all its CRLs are fetched, regardless of failing downloads, which are logged. Readiness
+ * is signalled when the first prefetch completes.
+ */
+public class CrlPrefetcher {
+
+    private final Logger log = LoggerFactory.getLogger(CrlPrefetcher.class);
+
+    private final CrlFetcher crlFetcher;
+
+    private final Executor executor;
+
+    private final Set<String> urls = Collections.synchronizedSet(new LinkedHashSet<>());
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    public CrlPrefetcher(CrlFetcher crlFetcher) {
+        this(crlFetcher, DefaultExecutor.getInstance());
+    }
+
+    /**
+     * @param crlFetcher Fetcher used for fetching CRLs, should be the fetcher used by the CRL rule.
+     * @param executor   Executor used for downloading.
+     */
+    public CrlPrefetcher(CrlFetcher crlFetcher, Executor executor) {
+        this.crlFetcher = crlFetcher;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds CRL distribution points of certificates in buckets.
+     */
+    public CrlPrefetcher addBucket(CertificateBucket... certificateBuckets) {
+        for (CertificateBucket certificateBucket : certificateBuckets)
+            for (X509Certificate certificate : certificateBucket)
+                addCertificate(certificate);
+        return this;
+    }
+
+    /**
+     * Adds CRL distribution points of certificates, including freshest CRL distribution points.
+     */
+    public CrlPrefetcher addCertificate(X509Certificate... certificates) {
+        for (X509Certificate certificate : certificates) {
+            ParsedCertificate parsedCertificate = ParsedCertificate.of(certificate);
+            try {
+                urls.addAll(parsedCertificate.getCrlDistributionPoints());
+                urls.addAll(parsedCertificate.getFreshestCrlDistributionPoints());
+            } catch (CertificateValidationException e) {
+                log.warn("Unable to read CRL distribution points of {}", certificate.getSubjectX500Principal(), e);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return Url's of CRLs to fetch.
+     */
+    public Set<String> getUrls() {
+        synchronized (urls) {
+            return new LinkedHashSet<>(urls);
+        }
+    }
+
+    /**
+     * Fetches all CRLs concurrently.
+     *
+     * @return Completion of this prefetch, completed when all CRLs are fetched.
+     */
+    public CompletableFuture<Void> prefetch() {
+        Set<String> pending = getUrls();
+        List<CompletableFuture<X509CRL>> futures = new ArrayList<>(pending.size());
+
+        for (String url : pending)
+            futures.add(fetch(url).exceptionally(e -> {
+                log.warn("Failed to prefetch CRL {}", url, e instanceof CompletionException ? e.getCause() : e);
+                return null;
+            }));
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+            log.info("Prefetched {} CRLs", pending.size());
+            ready.complete(null);
+            completion.complete(null);
+        });
+
+        return completion;
+    }
+
+    /**
+     * @return Readiness, completed when the first prefetch is completed.
+     */
+    public CompletableFuture<Void> getReady() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return ready.isDone();
+    }
+
+    private CompletableFuture<X509CRL> fetch(String url) {
+        if (crlFetcher instanceof AsyncCrlFetcher)
+            return ((AsyncCrlFetcher) crlFetcher).getAsync(url, executor);
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return crlFetcher.get(url);
+            } catch (CertificateValidationException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,459 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.ASN1UTCTime;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.operator.ContentVerifier;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.PublicKey;
+import java.security.cert.CRLException;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Streaming parser of DER encoded CRLs, adding revoked serial numbers directly to a revocation index while reading
+ * the CRL. Neither the encoded CRL nor objects per entry are kept in memory, and the signature of the CRL is verified
+ * over the bytes as they are read.
+ */
+public class CrlStreamParser {
+
+    private static final int SEQUENCE = 0x30;
+
+    private static final int INTEGER = 0x02;
+
+    private static final int BIT_STRING = 0x03;
+
+    private static final int UTC_TIME = 0x17;
+
+    private static final int GENERALIZED_TIME = 0x18;
+
+    private static final int EXTENSIONS = 0xA0;
+
+    /**
+     * Elements read into memory, e.g. entries, extensions and signature, are limited to 1 MiB.
+     */
+    private static final int MAX_ELEMENT_LENGTH = 1024 * 1024;
+
+    /**
+     * Resolves public key used to verify signature of CRL.
+     */
+    public interface IssuerKeyResolver {
+
+        /**
+         * @param issuer Issuer of CRL.
+         * @return Public key of issuer, null if issuer is unknown.
+         */
+        PublicKey resolve(X500Principal issuer) throws CertificateValidationException;
+    }
+
+    /**
+     * Parses CRL without verification of signature.
+     */
+    public static RevocationIndex parse(InputStream inputStream, boolean details) throws CRLException {
+        return parse(inputStream, details, null);
+    }
+
+    /**
+     * Parses CRL and verifies its signature.
+     *
+     * @param inputStream Stream of DER encoded CRL.
+     * @param details     Keep revocation date and reason of entries.
+     * @param resolver    Resolver of public key of issuer, signature is not verified if null.
+     * @return Revocation index of CRL.
+     * @throws CRLException if CRL is malformed, issuer is unknown or signature is not valid.
+     */
+    public static RevocationIndex parse(InputStream inputStream, boolean details, IssuerKeyResolver resolver) throws CRLException {
+        try {
+            return new CrlStreamParser(inputStream).parse(details, resolver);
+        } catch (IOException | ParseException | IllegalArgumentException | DateTimeException | IndexOutOfBoundsException e) {
+            throw new CRLException(String.format("Unable to parse CRL (%s)", e.getMessage()), e);
+        }
+    }
+
+    private final InputStream inputStream;
+
+    private long position;
+
+    private OutputStream tee;
+
+    private byte[] buffer = new byte[256];
+
+    private CrlStreamParser(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    private RevocationIndex parse(boolean details, IssuerKeyResolver resolver) throws IOException, ParseException, CRLException {
+        // CertificateList
+        expect(SEQUENCE);
+        long end = readLength() + position;
+
+        // TBSCertList, bytes are signed and kept until signature algorithm and issuer is known.
+        ByteArrayOutputStream signed = new ByteArrayOutputStream();
+        tee = signed;
+        expect(SEQUENCE);
+        long tbsEnd = readLength(end) + position;
+
+        int tag = readTag();
+        if (tag == INTEGER) {
+            // Version
+            skip(readLength(tbsEnd));
+            tag = readTag();
+        }
+
+        require(tag, SEQUENCE);
+        byte[] algorithm = readElement(tag, tbsEnd);
+
+        X500Principal issuer = new X500Principal(readElement(expect(SEQUENCE), tbsEnd));
+
+        ContentVerifier verifier = null;
+        if (resolver != null) {
+            verifier = verifier(resolver, issuer, algorithm);
+            tee = verifier.getOutputStream();
+            signed.writeTo(tee);
+        } else {
+            tee = null;
+        }
+
+        RevocationIndex.Builder builder = RevocationIndex.builder(issuer, details);
+        builder.thisUpdate(readTime(readTag(), tbsEnd));
+
+        tag = position < tbsEnd ? readTag() : -1;
+        if (tag == UTC_TIME || tag == GENERALIZED_TIME) {
+            builder.nextUpdate(readTime(tag, tbsEnd));
+            tag = position < tbsEnd ? readTag() : -1;
+        }
+
+        if (tag == SEQUENCE) {
+            // Revoked certificates
+            long revokedEnd = readLength(tbsEnd) + position;
+            while (position < revokedEnd) {
+                expect(SEQUENCE);
+                int length = readLength(revokedEnd);
+                readEntry(builder, length, issuer);
+            }
+            tag = position < tbsEnd ? readTag() : -1;
+        }
+
+        if (tag == EXTENSIONS)
+            readExtensions(builder, readContent(readLength(tbsEnd)));
+        else if (tag != -1)
+            throw new IOException(String.format("Unexpected tag 0x%02x", tag));
+
+        if (position != tbsEnd)
+            throw new IOException("Unexpected content at end of TBSCertList.");
+
+        tee = null;
+
+        // Signature
+        if (!Arrays.equals(algorithm, readElement(expect(SEQUENCE), end)))
+            throw new CRLException("Signature algorithm mismatch.");
+
+        expect(BIT_STRING);
+        byte[] signature = readContent(readLength(end));
+
+        if (verifier != null && (signature.length < 1 || !verifier.verify(Arrays.copyOfRange(signature, 1, signature.length))))
+            throw new CRLException("Signature of CRL is not valid.");
+
+        return builder.build();
+    }
+
+    private static ContentVerifier verifier(IssuerKeyResolver resolver, X500Principal issuer, byte[] algorithm) throws CRLException {
+        try {
+            PublicKey publicKey = resolver.resolve(issuer);
+            if (publicKey == null)
+                throw new CRLException(String.format("Issuer of CRL is unknown (%s).", issuer));
+
+            return new JcaContentVerifierProviderBuilder()
+                    .setProvider(BCHelper.PROVIDER)
+                    .build(publicKey)
+                    .get(AlgorithmIdentifier.getInstance(algorithm));
+        } catch (CertificateValidationException | OperatorCreationException e) {
+            throw new CRLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads revoked certificate into reusable buffer and adds it to index.
+     */
+    private void readEntry(RevocationIndex.Builder builder, int length, X500Principal issuer) throws IOException, ParseException {
+        if (length > MAX_ELEMENT_LENGTH)
+            throw new IOException("Entry exceeds maximum length.");
+        if (buffer.length < length)
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        readFully(buffer, 0, length);
+
+        int offset = 0;
+        checkBounds(offset, 1, length);
+        if (buffer[offset++] != INTEGER)
+            throw new IOException("Serial number expected.");
+        int serialLength = fieldLength(buffer, offset, length);
+        offset += lengthOfLength(buffer, offset);
+        int serialFrom = offset;
+        checkBounds(offset, serialLength, length);
+        offset += serialLength;
+
+        checkBounds(offset, 1, length);
+        int timeTag = buffer[offset++];
+        int timeLength = fieldLength(buffer, offset, length);
+        offset += lengthOfLength(buffer, offset);
+        checkBounds(offset, timeLength, length);
+        long revocationDate = parseTime(timeTag, buffer, offset, timeLength);
+        offset += timeLength;
+
+        int reason = -1;
+        if (offset < length) {
+            Extensions extensions = Extensions.getInstance(ASN1Primitive.fromByteArray(Arrays.copyOfRange(buffer, offset, length)));
+
+            Extension reasonCode = extensions.getExtension(Extension.reasonCode);
+            if (reasonCode != null)
+                reason = CRLReason.getInstance(reasonCode.getParsedValue()).getValue().intValue();
+
+            Extension certificateIssuer = extensions.getExtension(Extension.certificateIssuer);
+            if (certificateIssuer != null && !isIssuer(GeneralNames.getInstance(certificateIssuer.getParsedValue()), issuer))
+                builder.indirect();
+        }
+
+        builder.add(buffer, serialFrom, serialFrom + serialLength, revocationDate, reason);
+    }
+
+    private static void readExtensions(RevocationIndex.Builder builder, byte[] content) throws IOException {
+        Extensions extensions = Extensions.getInstance(ASN1Primitive.fromByteArray(content));
+
+        Extension crlNumber = extensions.getExtension(Extension.cRLNumber);
+        if (crlNumber != null)
+            builder.crlNumber(ASN1Integer.getInstance(crlNumber.getParsedValue()).getValue());
+
+        Extension deltaCrlIndicator = extensions.getExtension(Extension.deltaCRLIndicator);
+        if (deltaCrlIndicator != null)
+            builder.baseCrlNumber(ASN1Integer.getInstance(deltaCrlIndicator.getParsedValue()).getValue());
+
+        Extension freshestCrl = extensions.getExtension(Extension.freshestCRL);
+        if (freshestCrl != null)
+            builder.freshestCrls(CrlUtils.getUrls(CRLDistPoint.getInstance(freshestCrl.getParsedValue())));
+    }
+
+    private static boolean isIssuer(GeneralNames generalNames, X500Principal issuer) throws IOException {
+        return generalNames.getNames().length == 1
+                && issuer.equals(new X500Principal(generalNames.getNames()[0].getName().toASN1Primitive().getEncoded()));
+    }
+
+    private Date readTime(int tag, long end) throws IOException, ParseException {
+        int length = readLength(end);
+        return new Date(parseTime(tag, readContent(length), 0, length));
+    }
+
+    /**
+     * Parses UTCTime and GeneralizedTime as profiled by RFC 5280, other forms are parsed using Bouncy Castle.
+     */
+    static long parseTime(int tag, byte[] buffer, int offset, int length) throws ParseException, IOException {
+        if (tag == UTC_TIME && length == 13 && buffer[offset + 12] == 'Z') {
+            int year = digits(buffer, offset, 2);
+            return epochMillis(year < 50 ? 2000 + year : 1900 + year, buffer, offset + 2);
+        } else if (tag == GENERALIZED_TIME && length == 15 && buffer[offset + 14] == 'Z') {
+            return epochMillis(digits(buffer, offset, 4), buffer, offset + 4);
+        } else if (tag == UTC_TIME) {
+            return ASN1UTCTime.getInstance(element(tag, buffer, offset, length)).getAdjustedDate().getTime();
+        } else if (tag == GENERALIZED_TIME) {
+            return ASN1GeneralizedTime.getInstance(element(tag, buffer, offset, length)).getDate().getTime();
+        }
+
+        throw new IOException(String.format("Time expected, found tag 0x%02x", tag));
+    }
+
+    private static long epochMillis(int year, byte[] buffer, int offset) {
+        long days = LocalDate.of(year, digits(buffer, offset, 2), digits(buffer, offset + 2, 2)).toEpochDay();
+        long seconds = days * 86400
+                + digits(buffer, offset + 4, 2) * 3600
+                + digits(buffer, offset + 6, 2) * 60
+                + digits(buffer, offset + 8, 2);
+        return seconds * 1000;
+    }
+
+    private static int digits(byte[] buffer, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (buffer[i] < '0' || buffer[i] > '9')
+                throw new IllegalArgumentException("Invalid digit in time.");
+            value = value * 10 + (buffer[i] - '0');
+        }
+        return value;
+    }
+
+    private static byte[] element(int tag, byte[] buffer, int offset, int length) {
+        byte[] element = new byte[length + 2];
+        element[0] = (byte) tag;
+        element[1] = (byte) length;
+        System.arraycopy(buffer, offset, element, 2, length);
+        return element;
+    }
+
+    private static int lengthAt(byte[] buffer, int offset) throws IOException {
+        int first = buffer[offset] & 0xFF;
+        if (first < 0x80)
+            return first;
+
+        int count = first & 0x7F;
+        if (count == 0 || count > 3)
+            throw new IOException("Unsupported length.");
+
+        int length = 0;
+        for (int i = 1; i <= count; i++)
+            length = (length << 8) | (buffer[offset + i] & 0xFF);
+        return length;
+    }
+
+    /**
+     * Reads length of field in entry, checking that length octets are within entry.
+     */
+    private static int fieldLength(byte[] buffer, int offset, int length) throws IOException {
+        checkBounds(offset, 1, length);
+        checkBounds(offset, lengthOfLength(buffer, offset), length);
+        return lengthAt(buffer, offset);
+    }
+
+    /**
+     * Checks that count bytes from offset are within entry of given length.
+     */
+    private static void checkBounds(int offset, int count, int length) throws IOException {
+        if (count < 0 || offset + count > length)
+            throw new IOException("Field exceeds entry.");
+    }
+
+    private static int lengthOfLength(byte[] buffer, int offset) {
+        int first = buffer[offset] & 0xFF;
+        return first < 0x80 ? 1 : 1 + (first & 0x7F);
+    }
+
+    private int expect(int tag) throws IOException {
+        return require(readTag(), tag);
+    }
+
+    private static int require(int found, int tag) throws IOException {
+        if (found != tag)
+            throw new IOException(String.format("Expected tag 0x%02x, found 0x%02x", tag, found));
+        return found;
+    }
+
+    private int readTag() throws IOException {
+        return read();
+    }
+
+    private long readLength() throws IOException {
+        int first = read();
+        if (first < 0x80)
+            return first;
+
+        int count = first & 0x7F;
+        if (count == 0 || count > 4)
+            throw new IOException("Unsupported length, CRL must be DER encoded.");
+
+        long length = 0;
+        for (int i = 0; i < count; i++)
+            length = (length << 8) | read();
+        return length;
+    }
+
+    /**
+     * Reads length of element, which must be within enclosing element ending at given position.
+     */
+    private int readLength(long end) throws IOException {
+        long length = readLength();
+        if (length > end - position)
+            throw new IOException("Length exceeds enclosing element.");
+        return (int) Math.min(length, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads complete element, including tag and length, of which tag is already read.
+     */
+    private byte[] readElement(int tag, long end) throws IOException {
+        OutputStream previous = tee;
+        ByteArrayOutputStream element = new ByteArrayOutputStream();
+        element.write(tag);
+
+        tee = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                element.write(b);
+                if (previous != null)
+                    previous.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                element.write(b, off, len);
+                if (previous != null)
+                    previous.write(b, off, len);
+            }
+        };
+
+        try {
+            readContent(readLength(end));
+        } finally {
+            tee = previous;
+        }
+
+        return element.toByteArray();
+    }
+
+    private byte[] readContent(int length) throws IOException {
+        if (length > MAX_ELEMENT_LENGTH)
+            throw new IOException("Element exceeds maximum length.");
+        byte[] content = new byte[length];
+        readFully(content, 0, length);
+        return content;
+    }
+
+    private void skip(long length) throws IOException {
+        byte[] skipBuffer = new byte[(int) Math.min(length, 8192)];
+        while (length > 0) {
+            int n = (int) Math.min(length, skipBuffer.length);
+            readFully(skipBuffer, 0, n);
+            length -= n;
+        }
+    }
+
+    private int read() throws IOException {
+        int b = inputStream.read();
+        if (b < 0)
+            throw new EOFException("Unexpected end of CRL.");
+
+        position++;
+        if (tee != null)
+            tee.write(b);
+        return b;
+    }
+
+    private void readFully(byte[] b, int off, int len) throws IOException {
+        int read = 0;
+        while (read < len) {
+            int n = inputStream.read(b, off + read, len - read);
+            if (n < 0)
+                throw new EOFException("Unexpected end of CRL.");
+            read += n;
+        }
+
+        position += len;
+        if (tee != null)
+            tee.write(b, off, len);
+    }
+}
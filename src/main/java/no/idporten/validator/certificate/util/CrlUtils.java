@@ -1,15 +1,28 @@
 package no.idporten.validator.certificate.util;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URI;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
+import java.math.BigInteger;
 import java.security.cert.X509CRL;
+import java.security.cert.X509Extension;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Utilities for CRL i/o.
@@ -30,13 +43,38 @@ public class CrlUtils {
         return (X509CRL) certificateFactory.generateCRL(inputStream);
     }
 
+    /**
+     * Loads CRL as revocation index using streaming parser, signature is verified when resolver is given.
+     */
+    public static RevocationIndex loadIndex(InputStream inputStream, boolean details, CrlStreamParser.IssuerKeyResolver resolver) throws CRLException {
+        return CrlStreamParser.parse(inputStream, details, resolver);
+    }
+
     public static void save(OutputStream outputStream, X509CRL crl) throws CRLException, IOException {
         outputStream.write(crl.getEncoded());
     }
 
     public static X509CRL download(String url) throws CertificateValidationException {
+        return download(url, null);
+    }
+
+    /**
+     * Downloads CRL using a conditional request when current CRL is given.
+     *
+     * @return Downloaded CRL, or current CRL if not modified.
+     */
+    public static X509CRL download(String url, X509CRL current) throws CertificateValidationException {
+        return download(url, current, CrlHttpClient.getDefault());
+    }
+
+    /**
+     * Downloads CRL using provided client, using a conditional request when current CRL is given.
+     *
+     * @return Downloaded CRL, or current CRL if not modified.
+     */
+    public static X509CRL download(String url, X509CRL current, CrlHttpClient crlHttpClient) throws CertificateValidationException {
         if (url != null && url.matches("http[s]{0,1}://.*")) {
-            X509CRL crl = httpDownload(url);
+            X509CRL crl = crlHttpClient.download(url, current);
             return crl;
         } else if (url != null && url.startsWith("ldap://")) {
             // Currently not supported.
@@ -45,11 +83,96 @@ public class CrlUtils {
         return null;
     }
 
-    static X509CRL httpDownload(String url) throws CertificateValidationException {
+    /**
+     * Downloads CRL as revocation index using a conditional request when current index is given.
+     *
+     * @return Downloaded index, or current index if not modified.
+     */
+    public static RevocationIndex downloadIndex(String url, RevocationIndex current, boolean details, CrlStreamParser.IssuerKeyResolver resolver) throws CertificateValidationException {
+        return downloadIndex(url, current, details, resolver, CrlHttpClient.getDefault());
+    }
+
+    /**
+     * Downloads CRL as revocation index using provided client, using a conditional request when current index is
+     * given.
+     *
+     * @return Downloaded index, or current index if not modified.
+     */
+    public static RevocationIndex downloadIndex(String url, RevocationIndex current, boolean details, CrlStreamParser.IssuerKeyResolver resolver,
+                                                CrlHttpClient crlHttpClient) throws CertificateValidationException {
+        if (url != null && url.matches("http[s]{0,1}://.*"))
+            return crlHttpClient.downloadIndex(url, current, details, resolver);
+        return null;
+    }
+
+    /**
+     * @return CRL number of CRL, null if not given or malformed.
+     */
+    public static BigInteger getCrlNumber(X509Extension crl) {
+        return getInteger(crl, Extension.cRLNumber.getId());
+    }
+
+    /**
+     * @return CRL number of base CRL given by Delta CRL Indicator-extension, null if not a delta CRL.
+     */
+    public static BigInteger getBaseCrlNumber(X509Extension crl) {
+        return getInteger(crl, Extension.deltaCRLIndicator.getId());
+    }
+
+    /**
+     * Gets locations of delta CRLs given by Freshest CRL-extension of certificate or CRL.
+     *
+     * @return Locations of delta CRLs, empty if extension is not given or malformed.
+     */
+    public static List<String> getFreshestCrlDistributionPoints(X509Extension extensions) {
+        byte[] value = extensions.getExtensionValue(Extension.freshestCRL.getId());
+        if (value == null)
+            return Collections.emptyList();
+
+        try {
+            return getUrls(CRLDistPoint.getInstance(JcaX509ExtensionUtils.parseExtensionValue(value)));
+        } catch (IOException | IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return URLs of distribution points given by full name.
+     */
+    public static List<String> getUrls(CRLDistPoint distPoint) {
+        List<String> urls = new ArrayList<>();
+        for (DistributionPoint dp : distPoint.getDistributionPoints())
+            if (dp.getDistributionPoint() != null && dp.getDistributionPoint().getType() == DistributionPointName.FULL_NAME)
+                for (GeneralName name : GeneralNames.getInstance(dp.getDistributionPoint().getName()).getNames())
+                    if (name.getTagNo() == GeneralName.uniformResourceIdentifier)
+                        urls.add(((ASN1String) name.getName()).getString());
+        return urls;
+    }
+
+    /**
+     * Checks if CRL is a delta CRL applicable to base CRL, as defined by RFC 5280 section 5.2.4.
+     */
+    public static boolean isDeltaOf(X509CRL delta, X509CRL base) {
+        BigInteger baseCrlNumber = getBaseCrlNumber(delta);
+        BigInteger crlNumber = getCrlNumber(base);
+        BigInteger deltaCrlNumber = getCrlNumber(delta);
+
+        return baseCrlNumber != null
+                && crlNumber != null
+                && delta.getIssuerX500Principal().equals(base.getIssuerX500Principal())
+                && baseCrlNumber.compareTo(crlNumber) <= 0
+                && (deltaCrlNumber == null || deltaCrlNumber.compareTo(crlNumber) > 0);
+    }
+
+    private static BigInteger getInteger(X509Extension extensions, String oid) {
+        byte[] value = extensions.getExtensionValue(oid);
+        if (value == null)
+            return null;
+
         try {
-            return load(URI.create(url).toURL().openStream());
-        } catch (IOException | CRLException e) {
-            throw new CertificateValidationException(String.format("Failed to download CRL '%s' (%s)", url, e.getMessage()), e);
+            return ASN1Integer.getInstance(JcaX509ExtensionUtils.parseExtensionValue(value)).getValue();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
         }
     }
 
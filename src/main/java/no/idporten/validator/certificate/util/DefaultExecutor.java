@@ -0,0 +1,38 @@
+package no.idporten.validator.certificate.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor shared by validations performed in parallel or asynchronously when no executor is provided. Uses virtual
+ * threads when available (Java 21), otherwise a cached pool of daemon threads.
+ */
+public final class DefaultExecutor {
+
+    private static final ExecutorService INSTANCE = create();
+
+    /**
+     * @return Shared executor.
+     */
+    public static ExecutorService getInstance() {
+        return INSTANCE;
+    }
+
+    private static ExecutorService create() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "CertificateValidator-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    DefaultExecutor() {
+        // No action.
+    }
+}
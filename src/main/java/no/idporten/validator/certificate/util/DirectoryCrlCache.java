@@ -2,54 +2,371 @@ package no.idporten.validator.certificate.util;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.CrlCache;
+import org.bouncycastle.util.encoders.Hex;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
 
 /**
+ * CRL cache storing CRLs as files in a folder. Files are written to a temporary file and moved in place, so readers
+ * never see a partially written CRL. Each CRL is accompanied by a small index file holding url, This update-field,
+ * Next update-field and SHA-256 digest of the CRL, allowing stored CRLs to be listed without parsing them. The index is
+ * written after the CRL, and a CRL without index or not matching the digest of its index is treated as not stored.
+ * Temporary files left by interrupted writes are deleted on creation.
+ * <p/>
+ * When a {@link CrlHttpClient} is given, validators (ETag and Last-Modified) of downloaded CRLs are stored in the index
+ * and restored to the client on creation, allowing conditional requests after a restart.
+ *
  * @author erlend
  */
 public class DirectoryCrlCache implements CrlCache {
 
+    /**
+     * Suffix of file holding index of a stored CRL.
+     */
+    private static final String INDEX_SUFFIX = ".index";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Temporary files older than 5 minutes are left by interrupted writes.
+     */
+    private static final long STALE_TEMPORARY_MILLIS = 5 * 60 * 1000;
+
+    private static final Pattern UNSAFE_CHARACTERS = Pattern.compile("[^a-zA-Z0-9.\\-]");
+
     private Path folder;
 
+    private CrlHttpClient crlHttpClient;
+
     public DirectoryCrlCache(Path folder) throws IOException {
+        this(folder, null);
+    }
+
+    /**
+     * @param folder        Folder holding CRLs, created if missing.
+     * @param crlHttpClient Client downloading CRLs, validators of CRLs are stored and restored if given.
+     */
+    public DirectoryCrlCache(Path folder, CrlHttpClient crlHttpClient) throws IOException {
         this.folder = folder;
+        this.crlHttpClient = crlHttpClient;
 
         Files.createDirectories(folder);
+        deleteStaleTemporaryFiles();
+
+        if (crlHttpClient != null)
+            for (Entry entry : getEntries())
+                if (entry.getEtag() != null || entry.getLastModified() != null)
+                    crlHttpClient.setValidators(entry.getUrl(), new CrlHttpClient.Validators(entry.getEtag(), entry.getLastModified(), entry.getThisUpdate()));
     }
 
     @Override
     public X509CRL get(String url) throws CertificateValidationException {
-        Path file = folder.resolve(filterUrl(url));
+        Path file = getFile(url);
 
         if (!Files.exists(file))
             return null;
 
-        try (InputStream inputStream = Files.newInputStream(file)) {
-            return CrlUtils.load(inputStream);
+        try {
+            byte[] content = Files.readAllBytes(file);
+            if (!Hex.toHexString(digest(content)).equals(getDigest(url)))
+                return null;
+
+            return CrlUtils.load(new ByteArrayInputStream(content));
         } catch (IOException | CRLException e) {
             return null;
         }
     }
 
+    /**
+     * Gets stored CRL as revocation index. The file is streamed through {@link CrlStreamParser}, so large CRLs are
+     * parsed without reading them onto the heap. The digest is computed while parsing.
+     *
+     * @param url      Location of CRL.
+     * @param details  Keep revocation date and reason of entries.
+     * @param resolver Resolver of public key of issuer, signature is not verified if null.
+     * @return Revocation index of CRL, null if not stored or not readable.
+     */
+    public RevocationIndex getIndex(String url, boolean details, CrlStreamParser.IssuerKeyResolver resolver) {
+        Path file = getFile(url);
+
+        if (!Files.exists(file))
+            return null;
+
+        try (DigestInputStream inputStream = new DigestInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), MessageDigest.getInstance("SHA-256"))) {
+            String digest = getDigest(url);
+            if (digest == null)
+                return null;
+
+            RevocationIndex index = CrlUtils.loadIndex(inputStream, details, resolver);
+
+            // Include trailing bytes in digest.
+            byte[] buffer = new byte[8192];
+            while (inputStream.read(buffer) != -1) {
+                // No action.
+            }
+
+            return Hex.toHexString(inputStream.getMessageDigest().digest()).equals(digest) ? index : null;
+        } catch (IOException | CRLException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
     @Override
     public void set(String url, X509CRL crl) {
-        Path file = folder.resolve(filterUrl(url));
+        store(url, crl);
+    }
 
-        try (OutputStream outputStream = Files.newOutputStream(file)) {
-            CrlUtils.save(outputStream, crl);
+    /**
+     * Stores CRL in folder, removing stored CRL if null.
+     *
+     * @return True if CRL was written or removed.
+     */
+    protected boolean store(String url, X509CRL crl) {
+        try {
+            if (crl == null) {
+                Files.deleteIfExists(getIndexFile(url));
+                Files.deleteIfExists(getFile(url));
+                return true;
+            }
+
+            byte[] encoded = crl.getEncoded();
+
+            Properties index = new Properties();
+            index.setProperty("url", url);
+            index.setProperty("digest", Hex.toHexString(digest(encoded)));
+            if (crl.getThisUpdate() != null)
+                index.setProperty("thisUpdate", String.valueOf(crl.getThisUpdate().getTime()));
+            if (crl.getNextUpdate() != null)
+                index.setProperty("nextUpdate", String.valueOf(crl.getNextUpdate().getTime()));
+
+            CrlHttpClient.Validators validators = crlHttpClient == null ? null : crlHttpClient.getValidators(url);
+            if (validators != null && validators.getThisUpdate() != null && validators.getThisUpdate().equals(crl.getThisUpdate())) {
+                if (validators.getEtag() != null)
+                    index.setProperty("etag", validators.getEtag());
+                if (validators.getLastModified() != null)
+                    index.setProperty("lastModified", validators.getLastModified());
+            }
+
+            write(getFile(url), outputStream -> outputStream.write(encoded));
+            write(getIndexFile(url), outputStream -> index.store(outputStream, null));
+            return true;
         } catch (IOException | CRLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets indexes of CRLs stored in folder. CRLs stored without index are not listed.
+     *
+     * @return Indexes of stored CRLs.
+     */
+    public List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + INDEX_SUFFIX)) {
+            for (Path file : files) {
+                // Skip unreadable index files and stored CRLs whose name happens to end in index suffix.
+                try {
+                    Properties index = new Properties();
+                    try (InputStream inputStream = Files.newInputStream(file)) {
+                        index.load(inputStream);
+                    }
+
+                    String url = index.getProperty("url");
+                    if (url != null && getIndexFile(url).equals(file))
+                        entries.add(new Entry(index));
+                } catch (IOException | IllegalArgumentException e) {
+                    // No action.
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // No action.
+        }
+
+        return entries;
+    }
+
+    /**
+     * Gets url's of CRLs stored in folder. CRLs stored without index are not listed.
+     *
+     * @return Url's of stored CRLs.
+     */
+    public List<String> getUrls() {
+        List<String> urls = new ArrayList<>();
+        for (Entry entry : getEntries())
+            urls.add(entry.getUrl());
+        return urls;
+    }
+
+    /**
+     * @return Hex encoded digest of stored CRL according to its index, null if not indexed.
+     */
+    protected String getDigest(String url) {
+        Path indexFile = getIndexFile(url);
+        if (!Files.exists(indexFile))
+            return null;
+
+        Properties index = new Properties();
+        try (InputStream inputStream = Files.newInputStream(indexFile)) {
+            index.load(inputStream);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+
+        return url.equals(index.getProperty("url")) ? index.getProperty("digest") : null;
+    }
+
+    private void deleteStaleTemporaryFiles() {
+        long stale = System.currentTimeMillis() - STALE_TEMPORARY_MILLIS;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*" + TEMPORARY_SUFFIX)) {
+            for (Path file : files)
+                if (Files.getLastModifiedTime(file).toMillis() < stale)
+                    Files.deleteIfExists(file);
+        } catch (IOException e) {
             // No action.
         }
     }
 
+    /**
+     * @return Folder holding stored CRLs.
+     */
+    protected Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * @return File holding CRL of url.
+     */
+    protected Path getFile(String url) {
+        return folder.resolve(filterUrl(url));
+    }
+
+    private Path getIndexFile(String url) {
+        return folder.resolve(filterUrl(url) + INDEX_SUFFIX);
+    }
+
+    /**
+     * Writes to temporary file in folder and moves it in place, atomically when supported by file system.
+     */
+    private void write(Path file, Writer writer) throws IOException, CRLException {
+        Path temporary = Files.createTempFile(folder, "." + file.getFileName(), TEMPORARY_SUFFIX);
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                writer.write(outputStream);
+            }
+
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
     private String filterUrl(String s) {
-        return s.replaceAll("[^a-zA-Z0-9.\\-]", "_");
+        return UNSAFE_CHARACTERS.matcher(s).replaceAll("_");
+    }
+
+    private static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private interface Writer {
+        void write(OutputStream outputStream) throws IOException, CRLException;
+    }
+
+    /**
+     * Index of a stored CRL.
+     */
+    public static class Entry {
+
+        private final String url;
+
+        private final Date thisUpdate;
+
+        private final Date nextUpdate;
+
+        private final String digest;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private Entry(Properties index) {
+            this.url = index.getProperty("url");
+            this.thisUpdate = date(index.getProperty("thisUpdate"));
+            this.nextUpdate = date(index.getProperty("nextUpdate"));
+            this.digest = index.getProperty("digest");
+            this.etag = index.getProperty("etag");
+            this.lastModified = index.getProperty("lastModified");
+        }
+
+        private static Date date(String value) {
+            return value == null ? null : new Date(Long.parseLong(value));
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Date getThisUpdate() {
+            return thisUpdate;
+        }
+
+        /**
+         * @return Next update-field of CRL, null if not set.
+         */
+        public Date getNextUpdate() {
+            return nextUpdate;
+        }
+
+        /**
+         * @return Hex encoded SHA-256 digest of DER encoded CRL.
+         */
+        public String getDigest() {
+            return digest;
+        }
+
+        /**
+         * @return ETag of downloaded CRL, null if not known.
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return Last-Modified of downloaded CRL, null if not known.
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
     }
 }
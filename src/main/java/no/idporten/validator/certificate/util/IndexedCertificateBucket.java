@@ -0,0 +1,128 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateBucket;
+import no.idporten.validator.certificate.api.CertificateBucketException;
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.bouncycastle.util.encoders.Hex;
+
+import javax.security.auth.x500.X500Principal;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation keeping certificates in memory with hash indexes by subject, Subject Key Identifier and SHA-256
+ * fingerprint, allowing lookups in constant time independent of size of bucket. Suited for large trust lists and
+ * blacklists. Certificates already in bucket are ignored when added.
+ */
+public class IndexedCertificateBucket implements CertificateBucket {
+
+    private final List<X509Certificate> certificates = new CopyOnWriteArrayList<>();
+
+    private final Set<X509Certificate> certificateSet = ConcurrentHashMap.newKeySet();
+
+    private final Map<X500Principal, X509Certificate> bySubject = new ConcurrentHashMap<>();
+
+    private final Map<String, X509Certificate> byKeyIdentifier = new ConcurrentHashMap<>();
+
+    private final Map<String, X509Certificate> byFingerprint = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Create a new bucket indexing all certificates of provided bucket.
+     */
+    public static IndexedCertificateBucket of(CertificateBucket certificateBucket) throws CertificateBucketException {
+        IndexedCertificateBucket indexedCertificateBucket = new IndexedCertificateBucket();
+        for (X509Certificate certificate : certificateBucket)
+            indexedCertificateBucket.add(certificate);
+        return indexedCertificateBucket;
+    }
+
+    public IndexedCertificateBucket(X509Certificate... certificates) throws CertificateBucketException {
+        add(certificates);
+    }
+
+    /**
+     * Append certificate(s) to bucket.
+     *
+     * @param certificates Certificate(s) to be added.
+     * @throws CertificateBucketException
+     */
+    public synchronized void add(X509Certificate... certificates) throws CertificateBucketException {
+        try {
+            for (X509Certificate certificate : certificates) {
+                String fingerprint = CertificateUtils.fingerprint(certificate);
+                if (byFingerprint.containsKey(fingerprint))
+                    continue;
+
+                byte[] keyIdentifier = CertificateUtils.subjectKeyIdentifier(certificate);
+
+                byFingerprint.put(fingerprint, certificate);
+                bySubject.putIfAbsent(certificate.getSubjectX500Principal(), certificate);
+                if (keyIdentifier != null)
+                    byKeyIdentifier.putIfAbsent(Hex.toHexString(keyIdentifier), certificate);
+                certificateSet.add(certificate);
+                this.certificates.add(certificate);
+            }
+        } catch (CertificateValidationException e) {
+            throw new CertificateBucketException(e.getMessage(), e);
+        }
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public X509Certificate findBySubject(X500Principal principal) {
+        return bySubject.get(principal);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public X509Certificate findBySubjectKeyIdentifier(byte[] keyIdentifier) {
+        return byKeyIdentifier.get(Hex.toHexString(keyIdentifier));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public X509Certificate findByFingerprint(String fingerprint) {
+        return byFingerprint.get(fingerprint.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(X509Certificate certificate) {
+        return certificateSet.contains(certificate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<X509Certificate> iterator() {
+        return certificates.iterator();
+    }
+}
@@ -7,20 +7,36 @@ import javax.security.auth.x500.X500Principal;
 import java.io.InputStream;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Reads a keystore from input stream and keeps it in memory.
  */
 public class KeyStoreCertificateBucket implements CertificateBucket {
 
+    /**
+     * Default interval between checks of key store for modifications is 10 seconds.
+     */
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 10 * 1000;
+
     protected KeyStore keyStore;
 
+    private long checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_CHECK_INTERVAL_MILLIS);
+
+    private volatile long version;
+
+    private final AtomicLong checked = new AtomicLong();
+
+    private volatile boolean loaded;
+
     public KeyStoreCertificateBucket(KeyStore keyStore) {
         this.keyStore = keyStore;
     }
@@ -51,6 +67,52 @@ public class KeyStoreCertificateBucket implements CertificateBucket {
         return null;
     }
 
+    /**
+     * Version is derived from aliases and encoded certificates of key store, as key stores don't report modifications.
+     * Replacing the certificate of an alias results in a new version. The key store is scanned on first use, on
+     * {@link #reload()} and at most once per check interval, otherwise the last known version is returned. The last
+     * known version is kept if the key store cannot be read.
+     */
+    @Override
+    public long getVersion() {
+        long now = System.nanoTime();
+        long last = checked.get();
+        if (!loaded || (now - last >= checkIntervalNanos && checked.compareAndSet(last, now)))
+            reload();
+
+        return version;
+    }
+
+    /**
+     * Scans key store for modifications immediately, e.g. after the key store is changed.
+     */
+    public void reload() {
+        try {
+            KeyStore keyStore = getKeyStore();
+            long version = System.identityHashCode(keyStore);
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                Certificate certificate = keyStore.getCertificate(alias);
+                // Hash code of certificates is computed from their encoding and cached by the certificate
+                version = version * 31 + alias.hashCode();
+                version = version * 31 + (certificate == null ? 0 : certificate.hashCode());
+            }
+            this.version = version;
+        } catch (CertificateBucketException | KeyStoreException e) {
+            // Last known version is kept.
+        }
+        checked.set(System.nanoTime());
+        loaded = true;
+    }
+
+    /**
+     * @param checkIntervalMillis Interval between checks of key store for modifications.
+     */
+    public void setCheckInterval(long checkIntervalMillis) {
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,71 +1,240 @@
 package no.idporten.validator.certificate.util;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CRLException;
 import java.security.cert.X509CRL;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Extension to DirectoryCrlCache that holds CRL file in memory for a short period to avoid
- * reading crl file from disk for each validation
+ * reading crl file from disk for each validation. When the period has passed, the parsed CRL is
+ * reused as long as modification time, size and content hash of the file are unchanged.
+ * <p/>
+ * Optionally the folder is watched for changes, invalidating CRLs in memory as soon as their files
+ * change. The period still applies as a safety net for missed events. Events caused by the cache's
+ * own writes are ignored, as the file then matches the CRL in memory.
  */
-public class MemoryAndDiskCrlCache extends DirectoryCrlCache {
+public class MemoryAndDiskCrlCache extends DirectoryCrlCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryAndDiskCrlCache.class);
 
     private static final int DEFAULT_LIFTETIME_MEM_CACHE_MILLIS = 60000;
     private final int liftetimeMemCache;
+    private final WatchService watchService;
     Map<String, CachedCRL> cache = new ConcurrentHashMap<>();
 
+    /**
+     * Incremented when CRLs are invalidated, CRLs read from disk are only cached if none was invalidated while reading.
+     */
+    private final AtomicLong version = new AtomicLong();
+
     public MemoryAndDiskCrlCache(Path folder) throws IOException {
-        super(folder);
-        this.liftetimeMemCache = DEFAULT_LIFTETIME_MEM_CACHE_MILLIS;
+        this(folder, DEFAULT_LIFTETIME_MEM_CACHE_MILLIS);
     }
 
     public MemoryAndDiskCrlCache(Path folder, int liftetimeMemCache) throws IOException {
         super(folder);
         this.liftetimeMemCache = liftetimeMemCache;
+        this.watchService = null;
+    }
+
+    /**
+     * Create an instance optionally watching folder for changes.
+     *
+     * @param folder folder holding CRLs
+     * @param watch  invalidate CRLs in memory when their files change instead of after default period
+     */
+    public MemoryAndDiskCrlCache(Path folder, boolean watch) throws IOException {
+        super(folder);
+        this.liftetimeMemCache = DEFAULT_LIFTETIME_MEM_CACHE_MILLIS;
+        this.watchService = watch ? watch(folder) : null;
     }
 
     @Override
     public void set(String s, X509CRL x509CRL) {
-        super.set(s, x509CRL);
+        if (x509CRL == null || !store(s, x509CRL)) {
+            cache.remove(s);
+            return;
+        }
+
+        try {
+            Path file = getFile(s);
+            cache.put(s, new CachedCRL(x509CRL, file, Files.readAttributes(file, BasicFileAttributes.class), hash(x509CRL.getEncoded())));
+        } catch (IOException | CRLException e) {
+            cache.remove(s);
+        }
     }
 
     @Override
     public X509CRL get(String s) throws CertificateValidationException {
         CachedCRL memCachedCrl = cache.get(s);
         if (memCachedCrl == null || memCachedCrl.isExpired()) {
-            return retrieveFromDiskAndPutInMemCache(s);
+            return retrieveFromDiskAndPutInMemCache(s, memCachedCrl);
         }
         return memCachedCrl.getCrl();
 
     }
 
-    private X509CRL retrieveFromDiskAndPutInMemCache(String s) throws CertificateValidationException {
-        X509CRL crl = super.get(s);
-        if (crl != null) {
-            cache.put(s, new CachedCRL(crl));
+    /**
+     * Stops watching folder for changes.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null)
+            watchService.close();
+    }
+
+    /**
+     * Reads CRL from disk unless file is unchanged since CRL was cached. Only files with changed content are parsed,
+     * and only files matching digest of their index are accepted.
+     */
+    private X509CRL retrieveFromDiskAndPutInMemCache(String s, CachedCRL memCachedCrl) {
+        long current = version.get();
+        Path file = getFile(s);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (memCachedCrl != null && memCachedCrl.isSameFile(attributes)) {
+                put(s, memCachedCrl.renew(attributes), current);
+                return memCachedCrl.getCrl();
+            }
+
+            byte[] content = Files.readAllBytes(file);
+            byte[] hash = hash(content);
+            if (!Hex.toHexString(hash).equals(getDigest(s))) {
+                cache.remove(s);
+                return null;
+            }
+
+            X509CRL crl = memCachedCrl != null && Arrays.equals(memCachedCrl.hash, hash)
+                    ? memCachedCrl.getCrl()
+                    : CrlUtils.load(new ByteArrayInputStream(content));
+            if (crl != null)
+                put(s, new CachedCRL(crl, file, attributes, hash), current);
+
+            return crl;
+        } catch (NoSuchFileException e) {
+            cache.remove(s);
+            return null;
+        } catch (IOException | CRLException e) {
+            return null;
         }
+    }
+
+    /**
+     * Caches CRL read from disk unless a file changed since reading started.
+     */
+    private void put(String s, CachedCRL cachedCRL, long expectedVersion) {
+        cache.compute(s, (url, existing) -> version.get() == expectedVersion ? cachedCRL : existing);
+    }
 
-        return crl;
+    private WatchService watch(Path folder) throws IOException {
+        WatchService service = folder.getFileSystem().newWatchService();
+        folder.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = service.take();
+                    for (WatchEvent<?> event : key.pollEvents())
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            version.incrementAndGet();
+                            cache.clear();
+                        } else
+                            invalidate(folder.resolve((Path) event.context()));
+                    key.reset();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ClosedWatchServiceException e) {
+                // Closed.
+            }
+        }, "CRLWatcher-" + folder.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+
+        log.info("Watching {} for changed CRLs", folder);
+        return service;
+    }
+
+    /**
+     * Removes CRLs of changed file, unless file matches CRL in memory as after writes by this cache.
+     */
+    private void invalidate(Path file) {
+        if (cache.values().removeIf(cachedCRL -> cachedCRL.file.equals(file) && !cachedCRL.isCurrent()))
+            version.incrementAndGet();
+    }
+
+    private static byte[] hash(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
     }
 
     private class CachedCRL {
 
         final long cacheTime;
         final X509CRL crl;
+        final Path file;
+        final FileTime lastModified;
+        final long size;
+        final byte[] hash;
 
-        public CachedCRL(X509CRL crl) {
+        public CachedCRL(X509CRL crl, Path file, BasicFileAttributes attributes, byte[] hash) {
             this.cacheTime = System.currentTimeMillis();
             this.crl = crl;
+            this.file = file;
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.hash = hash;
         }
 
         protected boolean isExpired() {
             return System.currentTimeMillis() > cacheTime + liftetimeMemCache;
         }
 
+        /**
+         * @return True if file is unchanged since CRL was cached.
+         */
+        protected boolean isCurrent() {
+            try {
+                return isSameFile(Files.readAttributes(file, BasicFileAttributes.class));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        protected boolean isSameFile(BasicFileAttributes attributes) {
+            return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+
+        protected CachedCRL renew(BasicFileAttributes attributes) {
+            return new CachedCRL(crl, file, attributes, hash);
+        }
+
         protected X509CRL getCrl() {
             return crl;
         }
@@ -0,0 +1,341 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERIA5String;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CertificatePolicies;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.PolicyInformation;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.Principal;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.CertificateNotYetValidException;
+import java.security.cert.CertificateParsingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Certificate memoizing values parsed from the certificate, allowing rules of a validation to share the parsing.
+ * Created once per validation by {@link no.idporten.validator.certificate.Validator} and available to rules using
+ * {@link #of(X509Certificate)}. All methods of {@link X509Certificate} are delegated to the wrapped certificate, which
+ * should be passed to JCA services using {@link #unwrap(X509Certificate)}.
+ */
+public final class ParsedCertificate extends X509Certificate {
+
+    private static final String CRL_EXTENSION = "2.5.29.31";
+
+    private final X509Certificate certificate;
+
+    private volatile X500Name subject;
+
+    private volatile X500Name issuer;
+
+    private volatile List<String> crlDistributionPoints;
+
+    private volatile List<String> freshestCrlDistributionPoints;
+
+    private volatile Set<String> policies;
+
+    private volatile boolean[] keyUsage;
+
+    private volatile String fingerprint;
+
+    /**
+     * @return Certificate as parsed certificate, the certificate itself if already parsed.
+     */
+    public static ParsedCertificate of(X509Certificate certificate) {
+        return certificate instanceof ParsedCertificate ? (ParsedCertificate) certificate : new ParsedCertificate(certificate);
+    }
+
+    /**
+     * @return Wrapped certificate if parsed certificate, otherwise the certificate itself.
+     */
+    public static X509Certificate unwrap(X509Certificate certificate) {
+        return certificate instanceof ParsedCertificate ? ((ParsedCertificate) certificate).certificate : certificate;
+    }
+
+    private ParsedCertificate(X509Certificate certificate) {
+        this.certificate = certificate;
+    }
+
+    public X500Name getSubject() {
+        X500Name result = subject;
+        if (result == null)
+            subject = result = X500Name.getInstance(certificate.getSubjectX500Principal().getEncoded());
+        return result;
+    }
+
+    public X500Name getIssuer() {
+        X500Name result = issuer;
+        if (result == null)
+            issuer = result = X500Name.getInstance(certificate.getIssuerX500Principal().getEncoded());
+        return result;
+    }
+
+    /**
+     * @return URLs given by CRL Distribution Points-extension.
+     */
+    public List<String> getCrlDistributionPoints() throws CertificateValidationException {
+        List<String> result = crlDistributionPoints;
+        if (result == null) {
+            try {
+                List<String> urls = new ArrayList<>();
+                if (certificate.getNonCriticalExtensionOIDs().contains(CRL_EXTENSION)) {
+                    CRLDistPoint distPoint = CRLDistPoint.getInstance(JcaX509ExtensionUtils.parseExtensionValue(certificate.getExtensionValue(CRL_EXTENSION)));
+                    for (DistributionPoint dp : distPoint.getDistributionPoints())
+                        for (GeneralName name : ((GeneralNames) dp.getDistributionPoint().getName()).getNames())
+                            if (name.getTagNo() == GeneralName.uniformResourceIdentifier)
+                                urls.add(((DERIA5String) name.getName()).getString());
+                }
+
+                crlDistributionPoints = result = Collections.unmodifiableList(urls);
+            } catch (NullPointerException e) {
+                throw new CertificateValidationException(null);
+            } catch (IOException e) {
+                throw new CertificateValidationException(e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return URLs of delta CRLs given by Freshest CRL-extension.
+     */
+    public List<String> getFreshestCrlDistributionPoints() {
+        List<String> result = freshestCrlDistributionPoints;
+        if (result == null)
+            freshestCrlDistributionPoints = result = Collections.unmodifiableList(CrlUtils.getFreshestCrlDistributionPoints(certificate));
+        return result;
+    }
+
+    /**
+     * @return Identifiers of certificate policies, empty if extension is not present.
+     */
+    public Set<String> getPolicies() throws IOException {
+        Set<String> result = policies;
+        if (result == null) {
+            Set<String> identifiers = new HashSet<>();
+            byte[] value = certificate.getExtensionValue(Extension.certificatePolicies.getId());
+            if (value != null)
+                for (PolicyInformation policyInformation : CertificatePolicies.getInstance(JcaX509ExtensionUtils.parseExtensionValue(value)).getPolicyInformation()) {
+                    ASN1ObjectIdentifier identifier = policyInformation.getPolicyIdentifier();
+                    identifiers.add(identifier.getId());
+                }
+
+            policies = result = Collections.unmodifiableSet(identifiers);
+        }
+        return result;
+    }
+
+    /**
+     * @return SHA-256 fingerprint of certificate as lowercase hex.
+     */
+    public String getFingerprint() throws CertificateValidationException {
+        String result = fingerprint;
+        if (result == null)
+            fingerprint = result = CertificateUtils.fingerprint(certificate);
+        return result;
+    }
+
+    @Override
+    public boolean[] getKeyUsage() {
+        boolean[] result = keyUsage;
+        if (result == null) {
+            result = certificate.getKeyUsage();
+            if (result == null)
+                return null;
+            keyUsage = result;
+        }
+        return result.clone();
+    }
+
+    @Override
+    public X500Principal getSubjectX500Principal() {
+        return certificate.getSubjectX500Principal();
+    }
+
+    @Override
+    public X500Principal getIssuerX500Principal() {
+        return certificate.getIssuerX500Principal();
+    }
+
+    @Override
+    public void checkValidity() throws CertificateExpiredException, CertificateNotYetValidException {
+        certificate.checkValidity();
+    }
+
+    @Override
+    public void checkValidity(Date date) throws CertificateExpiredException, CertificateNotYetValidException {
+        certificate.checkValidity(date);
+    }
+
+    @Override
+    public int getVersion() {
+        return certificate.getVersion();
+    }
+
+    @Override
+    public BigInteger getSerialNumber() {
+        return certificate.getSerialNumber();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Principal getIssuerDN() {
+        return certificate.getIssuerDN();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Principal getSubjectDN() {
+        return certificate.getSubjectDN();
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return certificate.getNotBefore();
+    }
+
+    @Override
+    public Date getNotAfter() {
+        return certificate.getNotAfter();
+    }
+
+    @Override
+    public byte[] getTBSCertificate() throws CertificateEncodingException {
+        return certificate.getTBSCertificate();
+    }
+
+    @Override
+    public byte[] getSignature() {
+        return certificate.getSignature();
+    }
+
+    @Override
+    public String getSigAlgName() {
+        return certificate.getSigAlgName();
+    }
+
+    @Override
+    public String getSigAlgOID() {
+        return certificate.getSigAlgOID();
+    }
+
+    @Override
+    public byte[] getSigAlgParams() {
+        return certificate.getSigAlgParams();
+    }
+
+    @Override
+    public boolean[] getIssuerUniqueID() {
+        return certificate.getIssuerUniqueID();
+    }
+
+    @Override
+    public boolean[] getSubjectUniqueID() {
+        return certificate.getSubjectUniqueID();
+    }
+
+    @Override
+    public List<String> getExtendedKeyUsage() throws CertificateParsingException {
+        return certificate.getExtendedKeyUsage();
+    }
+
+    @Override
+    public int getBasicConstraints() {
+        return certificate.getBasicConstraints();
+    }
+
+    @Override
+    public Collection<List<?>> getSubjectAlternativeNames() throws CertificateParsingException {
+        return certificate.getSubjectAlternativeNames();
+    }
+
+    @Override
+    public Collection<List<?>> getIssuerAlternativeNames() throws CertificateParsingException {
+        return certificate.getIssuerAlternativeNames();
+    }
+
+    @Override
+    public byte[] getEncoded() throws CertificateEncodingException {
+        return certificate.getEncoded();
+    }
+
+    @Override
+    public void verify(PublicKey key) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+        certificate.verify(key);
+    }
+
+    @Override
+    public void verify(PublicKey key, String sigProvider) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException, SignatureException {
+        certificate.verify(key, sigProvider);
+    }
+
+    @Override
+    public void verify(PublicKey key, Provider sigProvider) throws CertificateException, NoSuchAlgorithmException, InvalidKeyException, SignatureException {
+        certificate.verify(key, sigProvider);
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return certificate.getPublicKey();
+    }
+
+    @Override
+    public boolean hasUnsupportedCriticalExtension() {
+        return certificate.hasUnsupportedCriticalExtension();
+    }
+
+    @Override
+    public Set<String> getCriticalExtensionOIDs() {
+        return certificate.getCriticalExtensionOIDs();
+    }
+
+    @Override
+    public Set<String> getNonCriticalExtensionOIDs() {
+        return certificate.getNonCriticalExtensionOIDs();
+    }
+
+    @Override
+    public byte[] getExtensionValue(String oid) {
+        return certificate.getExtensionValue(oid);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return certificate.equals(other instanceof ParsedCertificate ? ((ParsedCertificate) other).certificate : other);
+    }
+
+    @Override
+    public int hashCode() {
+        return certificate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return certificate.toString();
+    }
+}
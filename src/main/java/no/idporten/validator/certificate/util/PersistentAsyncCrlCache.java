@@ -0,0 +1,119 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.X509CRL;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Async CRL cache persisting CRLs to a folder using {@link DirectoryCrlCache}. CRLs still valid are loaded from folder
+ * in parallel when the cache is started, before the background refresh is started, allowing a warm start without
+ * downloading CRLs. Refresh of loaded CRLs is planned from their Next update-field, and validators for conditional
+ * requests persisted with the CRLs are restored to the client.
+ */
+public class PersistentAsyncCrlCache extends SimpleAsyncCrlCache {
+
+    private final Logger log = LoggerFactory.getLogger(PersistentAsyncCrlCache.class);
+
+    private final DirectoryCrlCache directoryCrlCache;
+
+    /**
+     * Create an instance using default initial delay and refresh interval.
+     *
+     * @param folder folder holding persisted CRLs, created if missing
+     */
+    public PersistentAsyncCrlCache(Path folder) throws IOException {
+        this(folder, DEFAULT_INIT_DELAY_MEM_CACHE_MILLIS, DEFAULT_LIFTETIME_MEM_CACHE_MILLIS, CacheUpdater.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Create an instance using provided refresh interval and number of parallel downloads.
+     *
+     * @param folder                folder holding persisted CRLs, created if missing
+     * @param initialDelayMillis    initial delay for a relaxed start, ignored if not larger than 0
+     * @param refreshIntervalMillis maximum refresh interval, ignored if not larger than 0
+     * @param parallelism           maximum number of parallel downloads, ignored if not larger than 0
+     */
+    public PersistentAsyncCrlCache(Path folder, long initialDelayMillis, long refreshIntervalMillis, int parallelism) throws IOException {
+        this(folder, initialDelayMillis, refreshIntervalMillis, parallelism, ConcurrentCrlCache.UNBOUNDED);
+    }
+
+    /**
+     * Create an instance using provided refresh interval, number of parallel downloads and memory budget. CRLs
+     * evicted from memory are kept in folder.
+     *
+     * @param folder                folder holding persisted CRLs, created if missing
+     * @param initialDelayMillis    initial delay for a relaxed start, ignored if not larger than 0
+     * @param refreshIntervalMillis maximum refresh interval, ignored if not larger than 0
+     * @param parallelism           maximum number of parallel downloads, ignored if not larger than 0
+     * @param maxBytes              memory budget as total size of encoded CRLs
+     */
+    public PersistentAsyncCrlCache(Path folder, long initialDelayMillis, long refreshIntervalMillis, int parallelism, long maxBytes) throws IOException {
+        super(initialDelayMillis, refreshIntervalMillis, parallelism, CrlHttpClient.getDefault(), maxBytes);
+        this.directoryCrlCache = new DirectoryCrlCache(folder, getCrlHttpClient());
+    }
+
+    @Override
+    public void set(String url, X509CRL crl) {
+        super.set(url, crl);
+        directoryCrlCache.set(url, crl);
+    }
+
+    /**
+     * Loads persisted CRLs before starting background refresh, planning refresh of loaded CRLs from their Next
+     * update-field.
+     */
+    @Override
+    public void start() {
+        getCacheUpdater().start(loadUrls());
+    }
+
+    /**
+     * Loads persisted CRLs in parallel. CRLs passed their Next update-field are ignored without being read.
+     *
+     * @return Number of CRLs loaded.
+     */
+    public int load() {
+        return loadUrls().size();
+    }
+
+    private Set<String> loadUrls() {
+        Date now = new Date();
+        Map<String, CompletableFuture<Boolean>> futures = new HashMap<>();
+
+        for (DirectoryCrlCache.Entry entry : directoryCrlCache.getEntries())
+            if (entry.getNextUpdate() == null || !entry.getNextUpdate().before(now))
+                futures.put(entry.getUrl(), CompletableFuture.supplyAsync(() -> load(entry.getUrl(), now), DefaultExecutor.getInstance()));
+
+        Set<String> loaded = new HashSet<>();
+        for (Map.Entry<String, CompletableFuture<Boolean>> future : futures.entrySet())
+            if (future.getValue().join())
+                loaded.add(future.getKey());
+
+        log.info("Loaded {} of {} persisted CRLs", loaded.size(), futures.size());
+        return loaded;
+    }
+
+    private boolean load(String url, Date now) {
+        try {
+            X509CRL crl = directoryCrlCache.get(url);
+            if (crl == null || (crl.getNextUpdate() != null && crl.getNextUpdate().before(now)))
+                return false;
+
+            super.set(url, crl);
+            return true;
+        } catch (CertificateValidationException | RuntimeException e) {
+            log.warn("Failed to load persisted CRL {}", url, e);
+            return false;
+        }
+    }
+}
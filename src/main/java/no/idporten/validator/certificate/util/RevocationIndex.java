@@ -0,0 +1,516 @@
+package no.idporten.validator.certificate.util;
+
+import javax.security.auth.x500.X500Principal;
+import java.math.BigInteger;
+import java.security.cert.CRLReason;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compact representation of the revoked serial numbers of a CRL. Serial numbers are kept sorted in a single packed
+ * byte array and looked up using binary search, holding a fraction of the memory used by X509CRL. Revocation date and
+ * reason of entries are optionally kept in side arrays.
+ * <p/>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class RevocationIndex {
+
+    private static final byte NO_REASON = -1;
+
+    private static final int REMOVE_FROM_CRL = CRLReason.REMOVE_FROM_CRL.ordinal();
+
+    private final X500Principal issuer;
+
+    private final Date thisUpdate;
+
+    private final Date nextUpdate;
+
+    private final boolean indirect;
+
+    private final byte[] serials;
+
+    private final int[] offsets;
+
+    private final long[] revocationDates;
+
+    private final byte[] reasons;
+
+    private final BigInteger crlNumber;
+
+    private final BigInteger baseCrlNumber;
+
+    private final List<String> freshestCrls;
+
+    private final RevocationIndex removals;
+
+    private final RevocationIndex base;
+
+    private final RevocationIndex delta;
+
+    /**
+     * Create index of CRL, keeping revocation date and reason of entries.
+     */
+    public static RevocationIndex of(X509CRL crl) {
+        return of(crl, true);
+    }
+
+    /**
+     * Create index of CRL.
+     *
+     * @param crl     CRL subject to indexing.
+     * @param details Keep revocation date and reason of entries.
+     */
+    public static RevocationIndex of(X509CRL crl, boolean details) {
+        Builder builder = builder(crl.getIssuerX500Principal(), details)
+                .thisUpdate(crl.getThisUpdate())
+                .nextUpdate(crl.getNextUpdate())
+                .crlNumber(CrlUtils.getCrlNumber(crl))
+                .baseCrlNumber(CrlUtils.getBaseCrlNumber(crl))
+                .freshestCrls(CrlUtils.getFreshestCrlDistributionPoints(crl));
+
+        Set<? extends X509CRLEntry> entries = crl.getRevokedCertificates();
+        if (entries != null) {
+            for (X509CRLEntry entry : entries) {
+                if (entry.getCertificateIssuer() != null && !entry.getCertificateIssuer().equals(crl.getIssuerX500Principal()))
+                    builder.indirect();
+
+                CRLReason reason = entry.getRevocationReason();
+                builder.add(entry.getSerialNumber().toByteArray(), entry.getRevocationDate().getTime(),
+                        reason == null ? NO_REASON : reason.ordinal());
+            }
+        }
+
+        return builder.build();
+    }
+
+    public static Builder builder(X500Principal issuer, boolean details) {
+        return new Builder(issuer, details);
+    }
+
+    private RevocationIndex(Builder builder, byte[] serials, int[] offsets, long[] revocationDates, byte[] reasons) {
+        this.issuer = builder.issuer;
+        this.thisUpdate = builder.thisUpdate;
+        this.nextUpdate = builder.nextUpdate;
+        this.indirect = builder.indirect;
+        this.serials = serials;
+        this.offsets = offsets;
+        this.revocationDates = revocationDates;
+        this.reasons = reasons;
+        this.crlNumber = builder.crlNumber;
+        this.baseCrlNumber = builder.baseCrlNumber;
+        this.freshestCrls = builder.freshestCrls;
+        this.removals = builder.removals();
+        this.base = null;
+        this.delta = null;
+    }
+
+    private RevocationIndex(RevocationIndex base, RevocationIndex delta, byte[] serials, int[] offsets, long[] revocationDates, byte[] reasons) {
+        this.issuer = base.issuer;
+        this.thisUpdate = delta.thisUpdate;
+        this.nextUpdate = delta.nextUpdate;
+        this.indirect = base.indirect || delta.indirect;
+        this.serials = serials;
+        this.offsets = offsets;
+        this.revocationDates = revocationDates;
+        this.reasons = reasons;
+        this.crlNumber = base.crlNumber;
+        this.baseCrlNumber = null;
+        this.freshestCrls = base.freshestCrls;
+        this.removals = null;
+        this.base = base;
+        this.delta = delta;
+    }
+
+    /**
+     * Checks if certificate is revoked. As for X509CRL, certificate must be issued by issuer of CRL. Entries of
+     * indirect CRLs are matched on serial number only.
+     */
+    public boolean isRevoked(X509Certificate certificate) {
+        if (!indirect && !issuer.equals(certificate.getIssuerX500Principal()))
+            return false;
+
+        return isRevoked(certificate.getSerialNumber());
+    }
+
+    public boolean isRevoked(BigInteger serialNumber) {
+        byte[] serial = serialNumber.toByteArray();
+        return find(serial, 0, serial.length) >= 0;
+    }
+
+    /**
+     * @return Revocation date of serial number, null if not revoked or dates are not kept.
+     */
+    public Date getRevocationDate(BigInteger serialNumber) {
+        byte[] serial = serialNumber.toByteArray();
+        int i = find(serial, 0, serial.length);
+        return i < 0 || revocationDates == null ? null : new Date(revocationDates[i]);
+    }
+
+    /**
+     * @return Revocation reason of serial number, null if not revoked, not given or reasons are not kept.
+     */
+    public CRLReason getRevocationReason(BigInteger serialNumber) {
+        byte[] serial = serialNumber.toByteArray();
+        int i = find(serial, 0, serial.length);
+        return i < 0 || reasons == null || reasons[i] == NO_REASON ? null : CRLReason.values()[reasons[i]];
+    }
+
+    public X500Principal getIssuer() {
+        return issuer;
+    }
+
+    public Date getThisUpdate() {
+        return thisUpdate;
+    }
+
+    public Date getNextUpdate() {
+        return nextUpdate;
+    }
+
+    /**
+     * @return CRL number of CRL, or of base CRL when merged with delta CRL. Null if not given.
+     */
+    public BigInteger getCrlNumber() {
+        return crlNumber;
+    }
+
+    /**
+     * @return CRL number of base CRL referenced by delta CRL, null if not a delta CRL.
+     */
+    public BigInteger getBaseCrlNumber() {
+        return baseCrlNumber;
+    }
+
+    public boolean isDelta() {
+        return baseCrlNumber != null;
+    }
+
+    /**
+     * @return Locations of delta CRLs given by Freshest CRL-extension of CRL.
+     */
+    public List<String> getFreshestCrlDistributionPoints() {
+        return freshestCrls;
+    }
+
+    /**
+     * @return Index of base CRL if merged with delta CRL, otherwise null.
+     */
+    public RevocationIndex getBase() {
+        return base;
+    }
+
+    /**
+     * @return Index of delta CRL if merged with base CRL, otherwise null.
+     */
+    public RevocationIndex getDelta() {
+        return delta;
+    }
+
+    /**
+     * Checks if this index is a delta CRL applicable to the given base CRL, as defined by RFC 5280 section 5.2.4.
+     */
+    public boolean isDeltaOf(RevocationIndex index) {
+        RevocationIndex baseIndex = index.base != null ? index.base : index;
+        return isDelta()
+                && issuer.equals(baseIndex.issuer)
+                && baseIndex.crlNumber != null
+                && baseCrlNumber.compareTo(baseIndex.crlNumber) <= 0
+                && (crlNumber == null || crlNumber.compareTo(baseIndex.crlNumber) > 0);
+    }
+
+    /**
+     * Creates index of this base CRL merged with delta CRL. Entries of delta CRL replace entries of base CRL, and
+     * entries removed from CRL by the delta CRL are removed. When this index is already merged with a delta CRL, the
+     * given delta CRL replaces the previous delta CRL.
+     *
+     * @param deltaIndex Index of delta CRL.
+     * @return Merged index.
+     * @throws IllegalArgumentException if delta CRL is not applicable to this CRL.
+     */
+    public RevocationIndex withDelta(RevocationIndex deltaIndex) {
+        if (base != null)
+            return base.withDelta(deltaIndex);
+        if (!deltaIndex.isDeltaOf(this))
+            throw new IllegalArgumentException("Delta CRL is not applicable to base CRL.");
+
+        boolean details = revocationDates != null && deltaIndex.revocationDates != null;
+        int capacity = size() + deltaIndex.size();
+        byte[] mergedSerials = new byte[serials.length + deltaIndex.serials.length];
+        int[] mergedOffsets = new int[capacity + 1];
+        long[] mergedRevocationDates = details ? new long[capacity] : null;
+        byte[] mergedReasons = details ? new byte[capacity] : null;
+
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < size() || j < deltaIndex.size()) {
+            int cmp = i >= size() ? 1 : j >= deltaIndex.size() ? -1
+                    : compare(serials, offsets[i], offsets[i + 1], deltaIndex.serials, deltaIndex.offsets[j], deltaIndex.offsets[j + 1]);
+
+            RevocationIndex source;
+            int entry;
+            if (cmp < 0) {
+                if (deltaIndex.removals != null && deltaIndex.removals.find(serials, offsets[i], offsets[i + 1]) >= 0) {
+                    i++;
+                    continue;
+                }
+                source = this;
+                entry = i++;
+            } else {
+                if (cmp == 0)
+                    i++;
+                source = deltaIndex;
+                entry = j++;
+            }
+
+            int length = source.offsets[entry + 1] - source.offsets[entry];
+            System.arraycopy(source.serials, source.offsets[entry], mergedSerials, mergedOffsets[n], length);
+            mergedOffsets[n + 1] = mergedOffsets[n] + length;
+            if (details) {
+                mergedRevocationDates[n] = source.revocationDates[entry];
+                mergedReasons[n] = source.reasons[entry];
+            }
+            n++;
+        }
+
+        return new RevocationIndex(this, deltaIndex,
+                Arrays.copyOf(mergedSerials, mergedOffsets[n]), Arrays.copyOf(mergedOffsets, n + 1),
+                details ? Arrays.copyOf(mergedRevocationDates, n) : null, details ? Arrays.copyOf(mergedReasons, n) : null);
+    }
+
+    /**
+     * @return Number of revoked serial numbers.
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    private int find(byte[] serial, int from, int to) {
+        int low = 0;
+        int high = size() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(serials, offsets[mid], offsets[mid + 1], serial, from, to);
+
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Orders serial numbers by length of encoding, then by unsigned value of encoding.
+     */
+    private static int compare(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        int cmp = Integer.compare(aTo - aFrom, bTo - bFrom);
+        return cmp != 0 ? cmp : Arrays.compareUnsigned(a, aFrom, aTo, b, bFrom, bTo);
+    }
+
+    /**
+     * Builder allowing entries to be added one by one, e.g. while parsing a CRL.
+     */
+    public static class Builder {
+
+        private final X500Principal issuer;
+
+        private final boolean details;
+
+        private Date thisUpdate;
+
+        private Date nextUpdate;
+
+        private boolean indirect;
+
+        private BigInteger crlNumber;
+
+        private BigInteger baseCrlNumber;
+
+        private List<String> freshestCrls = Collections.emptyList();
+
+        private final BitSet removed = new BitSet();
+
+        private byte[] serials = new byte[1024];
+
+        private int[] offsets = new int[64];
+
+        private long[] revocationDates;
+
+        private byte[] reasons;
+
+        private int size;
+
+        private Builder(X500Principal issuer, boolean details) {
+            this.issuer = issuer;
+            this.details = details;
+
+            if (details) {
+                this.revocationDates = new long[64];
+                this.reasons = new byte[64];
+            }
+        }
+
+        public Builder thisUpdate(Date thisUpdate) {
+            this.thisUpdate = thisUpdate;
+            return this;
+        }
+
+        public Builder nextUpdate(Date nextUpdate) {
+            this.nextUpdate = nextUpdate;
+            return this;
+        }
+
+        public Builder crlNumber(BigInteger crlNumber) {
+            this.crlNumber = crlNumber;
+            return this;
+        }
+
+        /**
+         * Marks CRL as delta CRL of base CRL with given CRL number.
+         */
+        public Builder baseCrlNumber(BigInteger baseCrlNumber) {
+            this.baseCrlNumber = baseCrlNumber;
+            return this;
+        }
+
+        public Builder freshestCrls(List<String> freshestCrls) {
+            this.freshestCrls = Collections.unmodifiableList(new ArrayList<>(freshestCrls));
+            return this;
+        }
+
+        /**
+         * Marks CRL as indirect, i.e. containing entries of certificates issued by others than issuer of CRL.
+         */
+        public Builder indirect() {
+            this.indirect = true;
+            return this;
+        }
+
+        /**
+         * Adds revoked serial number.
+         *
+         * @param serial         Serial number as encoded by {@link BigInteger#toByteArray()}.
+         * @param revocationDate Revocation date in milliseconds since epoch.
+         * @param reason         Revocation reason code, negative if not given.
+         */
+        public Builder add(byte[] serial, long revocationDate, int reason) {
+            return add(serial, 0, serial.length, revocationDate, reason);
+        }
+
+        /**
+         * Adds revoked serial number found in given range of buffer.
+         */
+        public Builder add(byte[] buffer, int from, int to, long revocationDate, int reason) {
+            if (reason == REMOVE_FROM_CRL)
+                removed.set(size);
+
+            int length = to - from;
+            int offset = offsets[size];
+
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                if (details) {
+                    revocationDates = Arrays.copyOf(revocationDates, offsets.length);
+                    reasons = Arrays.copyOf(reasons, offsets.length);
+                }
+            }
+            if (offset + length > serials.length)
+                serials = Arrays.copyOf(serials, Math.max(serials.length * 2, offset + length));
+
+            System.arraycopy(buffer, from, serials, offset, length);
+            if (details) {
+                revocationDates[size] = revocationDate;
+                reasons[size] = reason < 0 ? NO_REASON : (byte) reason;
+            }
+            offsets[++size] = offset + length;
+
+            return this;
+        }
+
+        public RevocationIndex build() {
+            // entries removed from base CRL are only kept apart for delta CRLs
+            boolean delta = baseCrlNumber != null;
+            int[] order = new int[size];
+            int count = 0;
+            for (int i = 0; i < size; i++)
+                if (!delta || !removed.get(i))
+                    order[count++] = i;
+            sort(order, new int[count], 0, count);
+
+            byte[] sortedSerials = new byte[size == 0 ? 0 : offsets[size]];
+            int[] sortedOffsets = new int[count + 1];
+            long[] sortedRevocationDates = details ? new long[count] : null;
+            byte[] sortedReasons = details ? new byte[count] : null;
+
+            for (int i = 0; i < count; i++) {
+                int entry = order[i];
+                int length = offsets[entry + 1] - offsets[entry];
+
+                System.arraycopy(serials, offsets[entry], sortedSerials, sortedOffsets[i], length);
+                sortedOffsets[i + 1] = sortedOffsets[i] + length;
+                if (details) {
+                    sortedRevocationDates[i] = revocationDates[entry];
+                    sortedReasons[i] = reasons[entry];
+                }
+            }
+
+            if (sortedSerials.length > sortedOffsets[count])
+                sortedSerials = Arrays.copyOf(sortedSerials, sortedOffsets[count]);
+
+            return new RevocationIndex(this, sortedSerials, sortedOffsets, sortedRevocationDates, sortedReasons);
+        }
+
+        /**
+         * @return Index of entries removed from base CRL by delta CRL, null if none.
+         */
+        private RevocationIndex removals() {
+            if (baseCrlNumber == null || removed.isEmpty())
+                return null;
+
+            Builder builder = new Builder(issuer, false);
+            for (int i = removed.nextSetBit(0); i >= 0; i = removed.nextSetBit(i + 1))
+                builder.add(serials, offsets[i], offsets[i + 1], 0, NO_REASON);
+            return builder.build();
+        }
+
+        /**
+         * Merge sort of entry numbers, avoiding boxing of entries.
+         */
+        private void sort(int[] order, int[] buffer, int from, int to) {
+            if (to - from < 2)
+                return;
+
+            int mid = (from + to) >>> 1;
+            sort(order, buffer, from, mid);
+            sort(order, buffer, mid, to);
+
+            if (compare(order[mid - 1], order[mid]) <= 0)
+                return;
+
+            System.arraycopy(order, from, buffer, from, to - from);
+            for (int i = from, l = from, r = mid; i < to; i++) {
+                if (r >= to || (l < mid && compare(buffer[l], buffer[r]) <= 0))
+                    order[i] = buffer[l++];
+                else
+                    order[i] = buffer[r++];
+            }
+        }
+
+        private int compare(int a, int b) {
+            return RevocationIndex.compare(serials, offsets[a], offsets[a + 1], serials, offsets[b], offsets[b + 1]);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+
+import java.util.List;
+
+/**
+ * Fetcher of CRLs in their compact representation.
+ */
+public interface RevocationIndexFetcher {
+    RevocationIndex get(String url) throws CertificateValidationException;
+
+    /**
+     * Fetches index of base CRL merged with the first applicable delta CRL.
+     *
+     * @param url       Location of base CRL.
+     * @param deltaUrls Locations of delta CRLs, Freshest CRL-extension of base CRL is used when empty.
+     * @return Index of base CRL, merged with delta CRL when available.
+     */
+    default RevocationIndex get(String url, List<String> deltaUrls) throws CertificateValidationException {
+        RevocationIndex index = get(url);
+        if (index == null)
+            return null;
+
+        for (String deltaUrl : deltaUrls.isEmpty() ? index.getFreshestCrlDistributionPoints() : deltaUrls) {
+            RevocationIndex delta = get(deltaUrl);
+            if (delta != null && delta.isDeltaOf(index))
+                return merge(url, index, delta);
+        }
+
+        return index;
+    }
+
+    /**
+     * Merges index of base CRL with applicable delta CRL.
+     *
+     * @param url   Location of base CRL.
+     * @param index Index of base CRL.
+     * @param delta Index of delta CRL applicable to base CRL.
+     * @return Merged index.
+     */
+    default RevocationIndex merge(String url, RevocationIndex index, RevocationIndex delta) {
+        return index.withDelta(delta);
+    }
+}
@@ -6,12 +6,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.security.cert.X509CRL;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * In-memory implementation of CRL cache that attempts to load all CRLs in cache at scheduled intervals.
+ * In-memory implementation of CRL cache that attempts to load all CRLs in cache ahead of their Next update-field.
  */
 public class SimpleAsyncCrlCache extends SimpleCrlCache implements AsyncCrlCache {
 
@@ -29,6 +38,8 @@ public class SimpleAsyncCrlCache extends SimpleCrlCache implements AsyncCrlCache
 
     private CacheUpdater cacheUpdater;
 
+    private final CrlHttpClient crlHttpClient;
+
     /**
      * Create an instance using default initial delay and refresh interval.
      */
@@ -50,23 +61,62 @@ public class SimpleAsyncCrlCache extends SimpleCrlCache implements AsyncCrlCache
      * @param refreshIntervalMillis refresh interval, ignored if not larger than 0
      */
     public SimpleAsyncCrlCache(long initialDelayMillis, long refreshIntervalMillis) {
+        this(initialDelayMillis, refreshIntervalMillis, CacheUpdater.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Create an instance using provided refresh interval and number of parallel downloads.
+     *
+     * @param initialDelayMillis    initial delay for a relaxed start, ignored if not larger than 0
+     * @param refreshIntervalMillis refresh interval of CRLs without Next update-field, ignored if not larger than 0
+     * @param parallelism           maximum number of parallel downloads, ignored if not larger than 0
+     */
+    public SimpleAsyncCrlCache(long initialDelayMillis, long refreshIntervalMillis, int parallelism) {
+        this(initialDelayMillis, refreshIntervalMillis, parallelism, CrlHttpClient.getDefault());
+    }
+
+    /**
+     * Create an instance using provided refresh interval, number of parallel downloads and client.
+     *
+     * @param initialDelayMillis    initial delay for a relaxed start, ignored if not larger than 0
+     * @param refreshIntervalMillis refresh interval of CRLs without Next update-field, ignored if not larger than 0
+     * @param parallelism           maximum number of parallel downloads, ignored if not larger than 0
+     * @param crlHttpClient         client used for downloading CRLs
+     */
+    public SimpleAsyncCrlCache(long initialDelayMillis, long refreshIntervalMillis, int parallelism, CrlHttpClient crlHttpClient) {
+        this(initialDelayMillis, refreshIntervalMillis, parallelism, crlHttpClient, ConcurrentCrlCache.UNBOUNDED);
+    }
+
+    /**
+     * Create an instance using provided refresh interval, number of parallel downloads, client and memory budget.
+     * CRLs evicted to stay within memory budget are no longer refreshed.
+     *
+     * @param initialDelayMillis    initial delay for a relaxed start, ignored if not larger than 0
+     * @param refreshIntervalMillis refresh interval of CRLs without Next update-field, ignored if not larger than 0
+     * @param parallelism           maximum number of parallel downloads, ignored if not larger than 0
+     * @param crlHttpClient         client used for downloading CRLs
+     * @param maxBytes              memory budget as total size of encoded CRLs
+     */
+    public SimpleAsyncCrlCache(long initialDelayMillis, long refreshIntervalMillis, int parallelism, CrlHttpClient crlHttpClient, long maxBytes) {
+        super(maxBytes);
+        this.crlHttpClient = crlHttpClient;
         this.cacheUpdater = new CacheUpdater(
                 this,
                 initialDelayMillis > 0 ? initialDelayMillis : DEFAULT_INIT_DELAY_MEM_CACHE_MILLIS,
-                refreshIntervalMillis > 0 ? refreshIntervalMillis : DEFAULT_LIFTETIME_MEM_CACHE_MILLIS);
+                refreshIntervalMillis > 0 ? refreshIntervalMillis : DEFAULT_LIFTETIME_MEM_CACHE_MILLIS,
+                parallelism);
     }
 
     @Override
     public void set(String url, X509CRL crl) {
         super.set(url, crl);
-        log.info("Cached CRL {}: CRL last updated {}, CRL next update {}", url, crl.getThisUpdate(), crl.getNextUpdate());
+        if (crl != null)
+            log.info("Cached CRL {}: CRL last updated {}, CRL next update {}", url, crl.getThisUpdate(), crl.getNextUpdate());
     }
 
     @Override
     public void start() {
-        Thread t = new Thread(this.cacheUpdater, "CRLUpdater");
-        t.setDaemon(true);
-        t.start();
+        this.cacheUpdater.start();
     }
 
     @Override
@@ -74,6 +124,10 @@ public class SimpleAsyncCrlCache extends SimpleCrlCache implements AsyncCrlCache
         this.cacheUpdater.stop();
     }
 
+    protected CrlHttpClient getCrlHttpClient() {
+        return this.crlHttpClient;
+    }
+
     protected CacheUpdater getCacheUpdater() {
         return this.cacheUpdater;
     }
@@ -83,59 +137,179 @@ public class SimpleAsyncCrlCache extends SimpleCrlCache implements AsyncCrlCache
     }
 
     /**
-     * Runnable re-loading all CRLs in cache at configured refresh interval.  Logs a warning if a CRL fails.
+     * Scheduler refreshing each CRL in cache based on its own Next update-field. CRLs are refreshed after the
+     * initial delay unless known to be fresh at start, later refreshes of a CRL are planned ahead of Next update-field of the CRL by a margin. CRLs
+     * without Next update-field are refreshed at refresh interval. Refreshes are spread using jitter and downloads run
+     * in parallel on a bounded pool. The cache is scanned for new and removed CRLs at refresh interval, refresh of
+     * removed CRLs is cancelled. Logs a warning if a CRL fails.
      */
     static class CacheUpdater implements Runnable {
 
+        /**
+         * Default number of parallel downloads.
+         */
+        static final int DEFAULT_PARALLELISM = 4;
+
+        /**
+         * Minimum delay between refreshes of a CRL is 1 minute.
+         */
+        static final long MIN_DELAY_MILLIS = 60 * 1000;
+
+        /**
+         * Refreshes are planned ahead of Next update-field by 10 % of the validity of the CRL.
+         */
+        private static final double MARGIN = 0.1;
+
+        /**
+         * Refreshes are planned up to 10 % earlier to spread downloads.
+         */
+        private static final double JITTER = 0.1;
+
         private final Logger log = LoggerFactory.getLogger(CacheUpdater.class);
         private final SimpleAsyncCrlCache crlCache;
         private final long refreshIntervalMillis;
         private final long initialDelayMillis;
-        private boolean running;
+        private final int parallelism;
+        private final Map<String, ScheduledFuture<?>> scheduled = new ConcurrentHashMap<>();
+        private volatile ScheduledExecutorService executor;
+        private volatile boolean running;
 
         public CacheUpdater(SimpleAsyncCrlCache crlCache, long initialDelayMillis, long refreshIntervalMillis) {
+            this(crlCache, initialDelayMillis, refreshIntervalMillis, DEFAULT_PARALLELISM);
+        }
+
+        public CacheUpdater(SimpleAsyncCrlCache crlCache, long initialDelayMillis, long refreshIntervalMillis, int parallelism) {
             this.crlCache = Objects.requireNonNull(crlCache);
             this.initialDelayMillis = initialDelayMillis;
             this.refreshIntervalMillis = refreshIntervalMillis;
+            this.parallelism = parallelism > 0 ? parallelism : DEFAULT_PARALLELISM;
+            this.running = true;
+        }
+
+        public void start() {
+            start(Collections.emptySet());
+        }
+
+        /**
+         * Starts refreshing CRLs. CRLs known to be fresh, e.g. loaded from disk, are planned from their Next
+         * update-field rather than refreshed after the initial delay. A scheduler of a previous start is shut down.
+         *
+         * @param fresh Url's of CRLs known to be fresh.
+         */
+        public synchronized void start(Set<String> fresh) {
+            if (executor != null) {
+                executor.shutdownNow();
+                scheduled.clear();
+            }
+
+            log.info("Starting CRL cache updater with initial delay {} milliseconds and interval {} milliseconds", initialDelayMillis, refreshIntervalMillis);
+            AtomicInteger counter = new AtomicInteger();
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "CRLUpdater-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+            this.executor = scheduler;
             this.running = true;
+
+            scheduler.schedule(() -> {
+                // start slowly, then refresh all CRLs known at startup unless known to be fresh
+                long now = System.currentTimeMillis();
+                for (String crlDistributionPoint : urls())
+                    schedule(crlDistributionPoint, fresh.contains(crlDistributionPoint) ? plan(crlCache.get(crlDistributionPoint), now) : 0);
+                scheduler.scheduleWithFixedDelay(this, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+            }, initialDelayMillis, TimeUnit.MILLISECONDS);
         }
 
-        public void stop() {
+        public synchronized void stop() {
             this.running = false;
+            if (executor != null)
+                executor.shutdownNow();
+            scheduled.clear();
+            log.info("Stopped CRL cache updater");
         }
 
         public boolean isRunning() {
             return this.running;
         }
 
+        /**
+         * Plans refresh of CRLs added to cache since last run, and cancels refresh of CRLs removed from cache.
+         */
         @Override
         public void run() {
-            log.info("Starting CRL cache update thread with initial delay {} milliseconds and interval {} milliseconds", initialDelayMillis, refreshIntervalMillis);
-            try { // start slowly
-                Thread.sleep(initialDelayMillis);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            for (String crlDistributionPoint : urls())
+                if (!scheduled.containsKey(crlDistributionPoint))
+                    schedule(crlDistributionPoint, plan(crlCache.get(crlDistributionPoint), System.currentTimeMillis()));
+
+            scheduled.entrySet().removeIf(entry -> {
+                if (urls().contains(entry.getKey()))
+                    return false;
+                entry.getValue().cancel(false);
+                return true;
+            });
+        }
+
+        protected X509CRL download(String url) throws CertificateValidationException {
+            return CrlUtils.download(url, crlCache.get(url), crlCache.getCrlHttpClient());
+        }
+
+        /**
+         * Downloads CRL and plans next refresh. Unchanged CRLs are not written to cache.
+         */
+        void refresh(String url) {
+            X509CRL crl = crlCache.get(url);
+            if (crl == null) {
+                // removed from cache
+                scheduled.remove(url);
+                return;
             }
-            while (running) {
-                Set<String> crlDistributionPoints = new HashSet<>(crlCache.getUrls());
-                for (String crlDistributionPoint : crlDistributionPoints) {
-                    try {
-                        crlCache.set(crlDistributionPoint, download(crlDistributionPoint));
-                    } catch (Exception e) {
-                        log.warn("Failed to fetch CRL from {}", crlDistributionPoint, e);
-                    }
-                }
-                try {
-                    Thread.sleep(refreshIntervalMillis);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+
+            try {
+                X509CRL downloaded = download(url);
+                if (downloaded != null && !downloaded.equals(crl) && urls().contains(url)) {
+                    crlCache.set(url, downloaded);
+                    crl = downloaded;
                 }
+            } catch (Exception e) {
+                log.warn("Failed to fetch CRL from {}", url, e);
             }
-            log.info("Stopped CRL cache updater");
+            schedule(url, plan(crl, System.currentTimeMillis()));
         }
 
-        protected X509CRL download(String url) throws CertificateValidationException {
-            return CrlUtils.download(url);
+        /**
+         * @return Delay until next refresh of CRL, refresh interval if CRL has no Next update-field.
+         */
+        long plan(X509CRL crl, long now) {
+            if (crl == null || crl.getNextUpdate() == null)
+                return jitter(refreshIntervalMillis);
+
+            long nextUpdate = crl.getNextUpdate().getTime();
+            long validity = nextUpdate - (crl.getThisUpdate() != null ? crl.getThisUpdate().getTime() : now);
+            long delay = jitter(nextUpdate - now - (long) (Math.max(validity, 0) * MARGIN));
+
+            return Math.max(Math.min(MIN_DELAY_MILLIS, refreshIntervalMillis), delay);
+        }
+
+        private static long jitter(long delay) {
+            return delay - (long) (Math.max(delay, 0) * JITTER * ThreadLocalRandom.current().nextDouble());
+        }
+
+        private void schedule(String url, long delayMillis) {
+            ScheduledExecutorService scheduler = executor;
+            if (!running || scheduler == null)
+                return;
+
+            try {
+                scheduled.put(url, scheduler.schedule(() -> refresh(url), delayMillis, TimeUnit.MILLISECONDS));
+            } catch (RejectedExecutionException e) {
+                // stopped
+            }
+        }
+
+        private Set<String> urls() {
+            return crlCache.getUrls();
         }
 
     }
@@ -1,21 +1,41 @@
 package no.idporten.validator.certificate.util;
 
+import no.idporten.validator.certificate.api.AsyncCrlFetcher;
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.CrlCache;
-import no.idporten.validator.certificate.api.CrlFetcher;
 
 import java.security.cert.X509CRL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Simple implementation of CRL fetcher, which caches downloaded CRLs. If a CRL is not cached, or the Next update-
  * field of a cached CRL indicates there is an updated CRL available, an updated CRL will immediately be downloaded.
+ * Concurrent requests for the same CRL share a single download.
  */
-public class SimpleCachingCrlFetcher implements CrlFetcher {
+public class SimpleCachingCrlFetcher implements AsyncCrlFetcher {
 
     protected CrlCache crlCache;
 
+    protected CrlHttpClient crlHttpClient;
+
+    private final Map<String, CompletableFuture<X509CRL>> downloads = new ConcurrentHashMap<>();
+
     public SimpleCachingCrlFetcher(CrlCache crlCache) {
+        this(crlCache, CrlHttpClient.getDefault());
+    }
+
+    /**
+     * @param crlCache      Cache holding CRLs.
+     * @param crlHttpClient Client used for downloading CRLs.
+     */
+    public SimpleCachingCrlFetcher(CrlCache crlCache, CrlHttpClient crlHttpClient) {
         this.crlCache = crlCache;
+        this.crlHttpClient = crlHttpClient;
     }
 
     @Override
@@ -23,18 +43,104 @@ public class SimpleCachingCrlFetcher implements CrlFetcher {
         X509CRL crl = crlCache.get(url);
         if (crl == null) {
             // Not in cache
-            crl = download(url);
-        } else if (crl.getNextUpdate() != null && crl.getNextUpdate().getTime() < System.currentTimeMillis()) {
+            crl = fetch(url);
+        } else if (isOutdated(crl)) {
             // Outdated
-            crl = download(url);
-        } else if (crl.getNextUpdate() == null) {
-            // No action.
+            crl = fetch(url);
         }
         return crl;
     }
 
+    @Override
+    public CompletableFuture<X509CRL> getAsync(String url, Executor executor) {
+        try {
+            X509CRL crl = crlCache.get(url);
+            if (crl != null && !isOutdated(crl))
+                return CompletableFuture.completedFuture(crl);
+        } catch (CertificateValidationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return fetchAsync(url, executor);
+    }
+
+    /**
+     * Downloads CRL and stores it in cache. Only one download per URL is performed at a time, concurrent callers
+     * wait for and share the result of the download in progress.
+     */
+    protected X509CRL fetch(String url) throws CertificateValidationException {
+        CompletableFuture<X509CRL> download = new CompletableFuture<>();
+        CompletableFuture<X509CRL> inProgress = downloads.putIfAbsent(url, download);
+
+        if (inProgress == null) {
+            complete(url, download);
+            inProgress = download;
+        }
+
+        try {
+            return inProgress.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CertificateValidationException)
+                throw (CertificateValidationException) e.getCause();
+            throw new CertificateValidationException(String.format("Failed to fetch CRL '%s'", url), e.getCause());
+        }
+    }
+
+    /**
+     * Starts download of CRL using provided executor, unless a download of the CRL is already in progress. The CRL
+     * is stored in cache when downloaded.
+     *
+     * @return Download in progress.
+     */
+    protected CompletableFuture<X509CRL> fetchAsync(String url, Executor executor) {
+        CompletableFuture<X509CRL> download = new CompletableFuture<>();
+        CompletableFuture<X509CRL> inProgress = downloads.putIfAbsent(url, download);
+
+        if (inProgress != null)
+            return inProgress;
+
+        try {
+            executor.execute(() -> complete(url, download));
+        } catch (RejectedExecutionException e) {
+            downloads.remove(url, download);
+            download.completeExceptionally(e);
+        }
+
+        return download;
+    }
+
+    /**
+     * Completes download of CRL. The cache is read again first, as a download completed just before this download
+     * was registered leaves a fresh CRL in cache.
+     */
+    private void complete(String url, CompletableFuture<X509CRL> download) {
+        try {
+            X509CRL cached = crlCache.get(url);
+            if (cached != null && !isOutdated(cached)) {
+                download.complete(cached);
+                return;
+            }
+
+            X509CRL crl = download(url);
+            if (crl != null)
+                crlCache.set(url, crl);
+            download.complete(crl);
+        } catch (Exception e) {
+            download.completeExceptionally(e);
+        } finally {
+            downloads.remove(url, download);
+        }
+    }
+
     protected X509CRL download(String url) throws CertificateValidationException {
-        return CrlUtils.download(url);
+        return CrlUtils.download(url, crlCache.get(url), crlHttpClient);
+    }
+
+    /**
+     * @return True if Next update-field of CRL indicates an updated CRL is available.
+     */
+    protected static boolean isOutdated(X509CRL crl) {
+        return crl.getNextUpdate() != null && crl.getNextUpdate().getTime() < System.currentTimeMillis();
     }
 
 }
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Lightweight implementation using ArrayList to keep certificates in memory.
@@ -16,6 +17,8 @@ public class SimpleCertificateBucket implements CertificateBucket {
 
     private List<X509Certificate> certificates = new ArrayList<>();
 
+    private final AtomicLong version = new AtomicLong();
+
     public static CertificateBucket with(X509Certificate... certificates) {
         return new SimpleCertificateBucket(certificates);
     }
@@ -31,6 +34,7 @@ public class SimpleCertificateBucket implements CertificateBucket {
      */
     public void add(X509Certificate... certificates) {
         this.certificates.addAll(Arrays.asList(certificates));
+        this.version.incrementAndGet();
     }
 
     /**
@@ -44,6 +48,14 @@ public class SimpleCertificateBucket implements CertificateBucket {
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -3,16 +3,26 @@ package no.idporten.validator.certificate.util;
 import no.idporten.validator.certificate.api.CrlCache;
 
 import java.security.cert.X509CRL;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
- * In-memory implementation of CRL cache. Used as default implementation.
+ * In-memory implementation of CRL cache. Used as default implementation. Safe for concurrent use, reads do not lock.
+ * CRLs are kept in a {@link ConcurrentCrlCache}, optionally with a memory budget.
  */
 public class SimpleCrlCache implements CrlCache {
 
-    private Map<String, X509CRL> storage = new TreeMap<>();
+    private final ConcurrentCrlCache storage;
+
+    public SimpleCrlCache() {
+        this(ConcurrentCrlCache.UNBOUNDED);
+    }
+
+    /**
+     * @param maxBytes Memory budget as total size of encoded CRLs, least recently used CRLs are evicted when exceeded.
+     */
+    public SimpleCrlCache(long maxBytes) {
+        this.storage = new ConcurrentCrlCache(maxBytes);
+    }
 
     @Override
     public X509CRL get(String url) {
@@ -21,18 +31,22 @@ public class SimpleCrlCache implements CrlCache {
 
     @Override
     public void set(String url, X509CRL crl) {
-        if (crl == null)
-            storage.remove(url);
-        else
-            storage.put(url, crl);
+        storage.set(url, crl);
     }
 
     /**
-     * Gets url's currently in cache
+     * Gets url's currently in cache. The returned set is a live view, safe to iterate while cache is updated.
      * @return cache keys
      */
     protected Set<String> getUrls() {
-        return storage.keySet();
+        return storage.getUrls();
+    }
+
+    /**
+     * @return Number of CRLs evicted to stay within memory budget.
+     */
+    public long getEvictionCount() {
+        return storage.getEvictionCount();
     }
 
 }
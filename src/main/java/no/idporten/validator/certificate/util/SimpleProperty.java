@@ -2,16 +2,35 @@ package no.idporten.validator.certificate.util;
 
 import no.idporten.validator.certificate.api.Property;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
+ * Each property is given a stable slot at creation, allowing reports to keep values in arrays.
+ *
  * @author erlend
  */
 public class SimpleProperty<T> implements Property<T> {
 
+    private static final AtomicInteger counter = new AtomicInteger();
+
     public static <T> Property<T> create() {
         return new SimpleProperty<>();
     }
 
+    /**
+     * @return Number of properties created.
+     */
+    static int slots() {
+        return counter.get();
+    }
+
+    private final int slot = counter.getAndIncrement();
+
     private SimpleProperty() {
         // No action.
     }
+
+    int getSlot() {
+        return slot;
+    }
 }
@@ -0,0 +1,140 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateBucket;
+import no.idporten.validator.certificate.api.CertificateValidationException;
+
+import javax.security.auth.x500.X500Principal;
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetcher keeping downloaded CRLs in memory as revocation indexes only. CRLs are parsed while downloaded, without
+ * materializing X509CRL. A CRL is downloaded when not cached or when its Next update-field has passed, and concurrent
+ * requests for the same CRL share a single download.
+ * <p/>
+ * Signatures of CRLs are only verified when certificates of CRL issuers are provided.
+ */
+public class SimpleRevocationIndexFetcher implements RevocationIndexFetcher {
+
+    private final Map<String, RevocationIndex> indexes = new ConcurrentHashMap<>();
+
+    private final Map<String, RevocationIndex> merged = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<RevocationIndex>> downloads = new ConcurrentHashMap<>();
+
+    private final boolean details;
+
+    private final CertificateBucket issuers;
+
+    private final CrlHttpClient crlHttpClient;
+
+    /**
+     * Create an instance keeping revocation date and reason of entries, without verifying signatures of CRLs.
+     */
+    public SimpleRevocationIndexFetcher() {
+        this(true);
+    }
+
+    /**
+     * Create an instance without verifying signatures of CRLs.
+     *
+     * @param details Keep revocation date and reason of entries.
+     */
+    public SimpleRevocationIndexFetcher(boolean details) {
+        this(details, null);
+    }
+
+    /**
+     * @param details Keep revocation date and reason of entries.
+     * @param issuers Certificates of CRL issuers used to verify signature of CRLs, signatures are not verified if null.
+     */
+    public SimpleRevocationIndexFetcher(boolean details, CertificateBucket issuers) {
+        this(details, issuers, CrlHttpClient.getDefault());
+    }
+
+    /**
+     * @param details       Keep revocation date and reason of entries.
+     * @param issuers       Certificates of CRL issuers used to verify signature of CRLs, signatures are not verified if
+     *                      null.
+     * @param crlHttpClient Client used for downloading CRLs.
+     */
+    public SimpleRevocationIndexFetcher(boolean details, CertificateBucket issuers, CrlHttpClient crlHttpClient) {
+        this.details = details;
+        this.issuers = issuers;
+        this.crlHttpClient = crlHttpClient;
+    }
+
+    @Override
+    public RevocationIndex get(String url) throws CertificateValidationException {
+        RevocationIndex index = indexes.get(url);
+        if (index == null || isOutdated(index))
+            index = fetch(url);
+        return index;
+    }
+
+    /**
+     * Merged index is kept until either base or delta CRL is updated.
+     */
+    @Override
+    public RevocationIndex merge(String url, RevocationIndex index, RevocationIndex delta) {
+        RevocationIndex current = merged.get(url);
+        if (current == null || current.getBase() != index || current.getDelta() != delta) {
+            current = index.withDelta(delta);
+            merged.put(url, current);
+        }
+        return current;
+    }
+
+    /**
+     * Makes index available for lookups, e.g. when loaded from other sources.
+     */
+    public void set(String url, RevocationIndex index) {
+        if (index == null)
+            indexes.remove(url);
+        else
+            indexes.put(url, index);
+    }
+
+    protected RevocationIndex fetch(String url) throws CertificateValidationException {
+        CompletableFuture<RevocationIndex> download = new CompletableFuture<>();
+        CompletableFuture<RevocationIndex> inProgress = downloads.putIfAbsent(url, download);
+
+        if (inProgress == null) {
+            try {
+                RevocationIndex index = download(url);
+                set(url, index);
+                download.complete(index);
+            } catch (Exception e) {
+                download.completeExceptionally(e);
+            } finally {
+                downloads.remove(url, download);
+            }
+            inProgress = download;
+        }
+
+        try {
+            return inProgress.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof CertificateValidationException)
+                throw (CertificateValidationException) e.getCause();
+            throw new CertificateValidationException(String.format("Failed to fetch CRL '%s'", url), e.getCause());
+        }
+    }
+
+    protected RevocationIndex download(String url) throws CertificateValidationException {
+        return CrlUtils.downloadIndex(url, indexes.get(url), details, issuers == null ? null : this::resolve, crlHttpClient);
+    }
+
+    private PublicKey resolve(X500Principal issuer) throws CertificateValidationException {
+        X509Certificate certificate = issuers.findBySubject(issuer);
+        return certificate == null ? null : certificate.getPublicKey();
+    }
+
+    private static boolean isOutdated(RevocationIndex index) {
+        return index.getNextUpdate() != null && index.getNextUpdate().getTime() < System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,105 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.CrlCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.cert.X509CRL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * CRL fetcher returning cached CRLs immediately while outdated CRLs are refreshed in the background. An outdated
+ * CRL is only used within a grace period after its Next update-field, validation blocks waiting for an updated CRL
+ * when the grace period is exceeded.
+ */
+public class StaleWhileRevalidateCrlFetcher extends SimpleCachingCrlFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaleWhileRevalidateCrlFetcher.class);
+
+    /**
+     * Default grace period for outdated CRLs is 1 hour.
+     */
+    public static final long DEFAULT_GRACE_MILLIS = 60 * 60 * 1000;
+
+    private final long graceMillis;
+
+    private final Executor executor;
+
+    public StaleWhileRevalidateCrlFetcher(CrlCache crlCache) {
+        this(crlCache, DEFAULT_GRACE_MILLIS);
+    }
+
+    public StaleWhileRevalidateCrlFetcher(CrlCache crlCache, long graceMillis) {
+        this(crlCache, graceMillis, Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "CRLRefresher");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param crlCache    Cache holding CRLs.
+     * @param graceMillis Period after Next update-field an outdated CRL is used while refreshed.
+     * @param executor    Executor used for refreshing outdated CRLs.
+     */
+    public StaleWhileRevalidateCrlFetcher(CrlCache crlCache, long graceMillis, Executor executor) {
+        this(crlCache, graceMillis, executor, CrlHttpClient.getDefault());
+    }
+
+    /**
+     * @param crlCache      Cache holding CRLs.
+     * @param graceMillis   Period after Next update-field an outdated CRL is used while refreshed.
+     * @param executor      Executor used for refreshing outdated CRLs.
+     * @param crlHttpClient Client used for downloading CRLs.
+     */
+    public StaleWhileRevalidateCrlFetcher(CrlCache crlCache, long graceMillis, Executor executor, CrlHttpClient crlHttpClient) {
+        super(crlCache, crlHttpClient);
+        this.graceMillis = graceMillis;
+        this.executor = executor;
+    }
+
+    @Override
+    public X509CRL get(String url) throws CertificateValidationException {
+        X509CRL crl = crlCache.get(url);
+        if (crl == null)
+            return fetch(url);
+
+        if (!isOutdated(crl))
+            return crl;
+
+        if (crl.getNextUpdate().getTime() + graceMillis > System.currentTimeMillis()) {
+            fetchAsync(url, executor);
+            return crl;
+        }
+
+        return fetch(url);
+    }
+
+    @Override
+    public CompletableFuture<X509CRL> getAsync(String url, Executor executor) {
+        try {
+            X509CRL crl = crlCache.get(url);
+            if (crl != null && isOutdated(crl) && crl.getNextUpdate().getTime() + graceMillis > System.currentTimeMillis()) {
+                fetchAsync(url, this.executor);
+                return CompletableFuture.completedFuture(crl);
+            }
+        } catch (CertificateValidationException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return super.getAsync(url, executor);
+    }
+
+    @Override
+    protected X509CRL download(String url) throws CertificateValidationException {
+        try {
+            return super.download(url);
+        } catch (CertificateValidationException e) {
+            logger.warn("Failed to refresh CRL {}", url, e);
+            throw e;
+        }
+    }
+}
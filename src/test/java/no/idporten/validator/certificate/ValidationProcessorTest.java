@@ -0,0 +1,135 @@
+package no.idporten.validator.certificate;
+
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.rule.AbstractRule;
+import no.idporten.validator.certificate.rule.ExpirationRule;
+import no.idporten.validator.certificate.testutil.X509TestGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("When validating a stream of certificates")
+public class ValidationProcessorTest {
+
+    @Test
+    @DisplayName("then a result is published per certificate, DER or PEM, and completion is propagated")
+    void testStream() throws Exception {
+        Instant now = Instant.now();
+        X509Certificate valid = new X509TestGenerator().createX509Certificate(Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)));
+        byte[] pem = ("-----BEGIN CERTIFICATE-----\n" + Base64.getMimeEncoder().encodeToString(valid.getEncoded()) + "\n-----END CERTIFICATE-----\n").getBytes();
+
+        ValidationProcessor processor = new ValidationProcessor(new Validator(new ExpirationRule()));
+        List<ValidationProcessor.Result> results = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        processor.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ValidationProcessor.Result item) {
+                results.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+
+        try (SubmissionPublisher<byte[]> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            for (int i = 0; i < 40; i++)
+                publisher.submit(i % 2 == 0 ? valid.getEncoded() : pem);
+            publisher.submit(new byte[]{1, 2, 3});
+        }
+
+        done.get(10, TimeUnit.SECONDS);
+        assertEquals(41, results.size());
+        assertEquals(40, results.stream().filter(result -> result.getOutcome().isValid()).count());
+        assertTrue(results.stream().filter(result -> !result.getOutcome().isValid()).allMatch(result -> result.getCertificate() == null));
+    }
+
+    @Test
+    @DisplayName("then exceptions thrown by rules are published as errors")
+    void testRuntimeException() throws Exception {
+        X509Certificate valid = new X509TestGenerator().createX509Certificate(Date.from(Instant.now().minus(1, DAYS)), Date.from(Instant.now().plus(1, DAYS)));
+        ValidationProcessor processor = new ValidationProcessor(new Validator(new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) {
+                throw new IllegalStateException("Broken rule");
+            }
+        }));
+
+        CompletableFuture<ValidationProcessor.Result> result = new CompletableFuture<>();
+        processor.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ValidationProcessor.Result item) {
+                result.complete(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                // No action.
+            }
+        });
+
+        Flow.Subscription subscription = mock(Flow.Subscription.class);
+        processor.onSubscribe(subscription);
+        processor.onNext(valid.getEncoded());
+
+        ValidationOutcome outcome = result.get(10, TimeUnit.SECONDS).getOutcome();
+        assertEquals(FailureCode.ERROR, outcome.getFailureCode());
+        assertEquals("Broken rule", outcome.getMessage());
+    }
+
+    @Test
+    @DisplayName("then upstream is cancelled when the processor is closed")
+    void testCancelUpstream() {
+        ValidationProcessor processor = new ValidationProcessor(new Validator(new ExpirationRule()));
+        Flow.Subscription subscription = mock(Flow.Subscription.class);
+        processor.onSubscribe(subscription);
+        verify(subscription).request(ValidationProcessor.DEFAULT_MAX_IN_FLIGHT);
+
+        processor.close();
+        verify(subscription).cancel();
+
+        Flow.Subscription late = mock(Flow.Subscription.class);
+        processor.onSubscribe(late);
+        verify(late).cancel();
+    }
+}
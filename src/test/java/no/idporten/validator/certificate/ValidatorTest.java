@@ -0,0 +1,104 @@
+package no.idporten.validator.certificate;
+
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.rule.ExpirationRule;
+import no.idporten.validator.certificate.testutil.X509TestGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When validating certificates in batch")
+public class ValidatorTest {
+
+    private final X509TestGenerator generator = new X509TestGenerator();
+
+    @Test
+    @DisplayName("then an outcome is returned per certificate in order of certificates")
+    void testValidateAll() throws Exception {
+        Instant now = Instant.now();
+        X509Certificate valid = generator.createX509Certificate(Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)));
+        X509Certificate expired = generator.createX509Certificate(Date.from(now.minus(2, DAYS)), Date.from(now.minus(1, DAYS)));
+
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            certificates.add(i % 5 == 0 ? expired : valid);
+
+        Validator validator = new Validator(new ExpirationRule());
+        List<ValidationOutcome> outcomes = validator.validateAll(certificates, 4);
+
+        assertEquals(certificates.size(), outcomes.size());
+        for (int i = 0; i < certificates.size(); i++)
+            assertEquals(i % 5 != 0, outcomes.get(i).isValid());
+    }
+
+    @Test
+    @DisplayName("then a supplied pool is used and left running")
+    void testValidateAllSuppliedPool() throws Exception {
+        Instant now = Instant.now();
+        X509Certificate valid = generator.createX509Certificate(Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)));
+
+        Validator validator = new Validator(new ExpirationRule());
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertTrue(validator.validateAll(Arrays.asList(valid, valid), pool).get(1).isValid());
+            assertFalse(pool.isShutdown());
+            assertTrue(validator.validateAllEncoded(Arrays.asList(valid.getEncoded()), pool).get(0).isValid());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("then encoded certificates are parsed and failing parsing is reported per certificate")
+    void testValidateAllEncoded() throws Exception {
+        Instant now = Instant.now();
+        X509Certificate valid = generator.createX509Certificate(Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)));
+
+        Validator validator = new Validator(new ExpirationRule());
+        List<ValidationOutcome> outcomes = validator.validateAllEncoded(Arrays.asList(valid.getEncoded(), new byte[]{1, 2, 3}));
+
+        assertTrue(outcomes.get(0).isValid());
+        assertEquals(valid, outcomes.get(0).getReport().get(Validator.CERTIFICATE));
+        assertFalse(outcomes.get(1).isValid());
+    }
+
+    @Test
+    @DisplayName("then missing certificates and unexpected exceptions are reported per certificate")
+    void testValidateAllErrors() throws Exception {
+        Instant now = Instant.now();
+        X509Certificate valid = generator.createX509Certificate(Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)));
+        X509Certificate failing = generator.createX509Certificate(Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)));
+
+        Validator validator = new Validator(new ExpirationRule() {
+            @Override
+            public ValidationOutcome validateToResult(X509Certificate certificate, Report report) {
+                if (certificate.equals(failing))
+                    throw new IllegalStateException("Unexpected");
+                return super.validateToResult(certificate, report);
+            }
+        });
+        List<ValidationOutcome> outcomes = validator.validateAll(Arrays.asList(valid, null, failing, valid), 2);
+
+        assertTrue(outcomes.get(0).isValid());
+        assertEquals(FailureCode.ERROR, outcomes.get(1).getFailureCode());
+        assertEquals(FailureCode.ERROR, outcomes.get(2).getFailureCode());
+        assertEquals("Unexpected", outcomes.get(2).getMessage());
+        assertTrue(outcomes.get(3).isValid());
+
+        outcomes = validator.validateAllEncoded(Arrays.asList(null, valid.getEncoded()), 2);
+        assertEquals(FailureCode.ERROR, outcomes.get(0).getFailureCode());
+        assertTrue(outcomes.get(1).isValid());
+    }
+}
@@ -2,18 +2,48 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.Validator;
 import no.idporten.validator.certificate.ValidatorBuilder;
+import no.idporten.validator.certificate.api.AsyncCrlFetcher;
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.CrlCache;
 import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.testutil.TestDataUtils;
+import no.idporten.validator.certificate.util.RevocationIndex;
 import no.idporten.validator.certificate.util.SimpleCachingCrlFetcher;
 import no.idporten.validator.certificate.util.SimpleCrlCache;
+import no.idporten.validator.certificate.util.SimpleReport;
+import no.idporten.validator.certificate.util.SimpleRevocationIndexFetcher;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.Security;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -21,6 +51,12 @@ import static org.mockito.Mockito.when;
 @DisplayName("When validating CRL-rules")
 public class CRLRuleTest {
 
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static final String DELTA_CRL_URL = "http://crl.idporten.no/delta.crl";
+
     private static String CRL_URL = "http://pilotonsitecrl.verisign.com/DigitaliseringsstyrelsenPilotOpenPEPPOLACCESSPOINTCA/LatestCRL.crl";
 
     @Test
@@ -36,6 +72,38 @@ public class CRLRuleTest {
     }
 
 
+    @Test
+    @DisplayName("asynchronous validation should download CRL using executor and complete synchronously when cached")
+    public void async() throws Exception {
+        X509CRL x509CRL = Mockito.mock(X509CRL.class);
+        SimpleCachingCrlFetcher crlFetcher = new SimpleCachingCrlFetcher(new SimpleCrlCache()) {
+            @Override
+            protected X509CRL download(String url) {
+                return x509CRL;
+            }
+        };
+        Validator validator = new Validator(new CRLRule(crlFetcher));
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+
+        AtomicInteger executions = new AtomicInteger();
+        Executor executor = runnable -> {
+            executions.incrementAndGet();
+            new Thread(runnable).start();
+        };
+
+        validator.validateAsync(certificate, executor).toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertEquals(1, executions.get());
+
+        CompletableFuture<Report> cached = validator.validateAsync(certificate, executor).toCompletableFuture();
+        assertTrue(cached.isDone());
+        assertEquals(1, executions.get());
+
+        when(x509CRL.isRevoked(Mockito.any())).thenReturn(true);
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> validator.validateAsync(certificate, executor).toCompletableFuture().get());
+        assertTrue(exception.getCause() instanceof FailedValidationException);
+    }
+
     @Test
     @DisplayName("parsing should throw CertificateValidationException when no set with urls is available for CRL (actually wrapped NullpointerException)")
     public void noUrlsSet() throws Exception {
@@ -79,4 +147,100 @@ public class CRLRuleTest {
         CRLRule rule = new CRLRule(url -> null);
         rule.validate(certificate);
     }
+
+    @Test
+    @DisplayName("validation should fail when certificate is listed as revoked in revocation index")
+    public void revokedInRevocationIndex() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        RevocationIndex index = RevocationIndex.builder(certificate.getIssuerX500Principal(), false)
+                .add(certificate.getSerialNumber().toByteArray(), 0, -1)
+                .build();
+
+        CRLRule rule = CRLRule.withRevocationIndex(url -> CRL_URL.equals(url) ? index : null);
+        FailedValidationException failedValidationException = assertThrows(FailedValidationException.class,
+                () -> rule.validate(certificate));
+        assertEquals("Certificate is revoked.", failedValidationException.getMessage());
+
+        CRLRule.withRevocationIndex(url -> RevocationIndex.builder(certificate.getIssuerX500Principal(), false).build())
+                .validate(certificate);
+    }
+
+    @Test
+    @DisplayName("validation should consult delta CRL given by Freshest CRL-extension of base CRL")
+    public void deltaCrl() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        X509CRL base = crl(certificate, BigInteger.TEN, null, 0);
+        X509CRL revokingDelta = crl(certificate, BigInteger.valueOf(11), BigInteger.TEN, CRLReason.keyCompromise);
+        X509CRL removingDelta = crl(certificate, BigInteger.valueOf(12), BigInteger.TEN, CRLReason.removeFromCRL);
+        X509CRL revokingBase = crl(certificate, BigInteger.TEN, null, CRLReason.certificateHold);
+
+        CrlCache crlCache = new SimpleCrlCache();
+        crlCache.set(CRL_URL, base);
+        crlCache.set(DELTA_CRL_URL, revokingDelta);
+        assertThrows(FailedValidationException.class, () -> new CRLRule(crlCache).validate(certificate));
+
+        crlCache.set(CRL_URL, revokingBase);
+        crlCache.set(DELTA_CRL_URL, removingDelta);
+        new CRLRule(crlCache).validate(certificate);
+
+        SimpleRevocationIndexFetcher indexFetcher = new SimpleRevocationIndexFetcher();
+        indexFetcher.set(CRL_URL, RevocationIndex.of(base));
+        indexFetcher.set(DELTA_CRL_URL, RevocationIndex.of(revokingDelta));
+        assertThrows(FailedValidationException.class, () -> CRLRule.withRevocationIndex(indexFetcher).validate(certificate));
+
+        indexFetcher.set(CRL_URL, RevocationIndex.of(revokingBase));
+        indexFetcher.set(DELTA_CRL_URL, RevocationIndex.of(removingDelta));
+        CRLRule.withRevocationIndex(indexFetcher).validate(certificate);
+    }
+
+    @Test
+    @DisplayName("asynchronous validation should fetch delta CRL given by base CRL without blocking")
+    public void deltaCrlAsync() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        X509CRL base = crl(certificate, BigInteger.TEN, null, 0);
+        X509CRL revokingDelta = crl(certificate, BigInteger.valueOf(11), BigInteger.TEN, CRLReason.keyCompromise);
+
+        CompletableFuture<X509CRL> delta = new CompletableFuture<>();
+        AsyncCrlFetcher crlFetcher = new AsyncCrlFetcher() {
+            @Override
+            public X509CRL get(String url) {
+                throw new IllegalStateException("Blocking fetch of " + url);
+            }
+
+            @Override
+            public CompletableFuture<X509CRL> getAsync(String url, Executor executor) {
+                return CRL_URL.equals(url) ? CompletableFuture.completedFuture(base) : delta;
+            }
+        };
+
+        CompletableFuture<ValidationOutcome> outcome = new CRLRule(crlFetcher)
+                .validateAsync(certificate, SimpleReport.newInstance(), Runnable::run);
+        assertFalse(outcome.isDone());
+
+        delta.complete(revokingDelta);
+        assertEquals(FailureCode.REVOKED, outcome.get(10, TimeUnit.SECONDS).getFailureCode());
+    }
+
+    /**
+     * Creates base CRL pointing to delta CRL, or delta CRL of given base CRL number, listing the certificate when reason is given.
+     */
+    private static X509CRL crl(X509Certificate certificate, BigInteger crlNumber, BigInteger baseCrlNumber, int reason) throws Exception {
+        KeyPair keyPair = TestDataUtils.generateRSAKeyPair();
+        Date now = new Date();
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(X500Name.getInstance(certificate.getIssuerX500Principal().getEncoded()), now);
+        builder.setNextUpdate(new Date(now.getTime() + 60 * 60 * 1000));
+        builder.addExtension(Extension.cRLNumber, false, new CRLNumber(crlNumber));
+        if (baseCrlNumber != null)
+            builder.addExtension(Extension.deltaCRLIndicator, true, new CRLNumber(baseCrlNumber));
+        else
+            builder.addExtension(Extension.freshestCRL, false, new CRLDistPoint(new DistributionPoint[]{
+                    new DistributionPoint(new DistributionPointName(new GeneralNames(
+                            new GeneralName(GeneralName.uniformResourceIdentifier, DELTA_CRL_URL))), null, null)}));
+        if (reason != 0)
+            builder.addCRLEntry(certificate.getSerialNumber(), now, reason);
+        builder.addCRLEntry(BigInteger.ONE, now, CRLReason.superseded);
+
+        return new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
 }
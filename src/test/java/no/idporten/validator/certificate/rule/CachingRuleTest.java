@@ -0,0 +1,149 @@
+package no.idporten.validator.certificate.rule;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.util.SimpleReport;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Date;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static no.idporten.validator.certificate.testutil.TestDataUtils.generateCertificate;
+import static no.idporten.validator.certificate.testutil.TestDataUtils.generateRSAKeyPair;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("When caching results of validation")
+public class CachingRuleTest {
+    static {
+        // required to generate certificates
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static KeyPair keyPair;
+
+    @BeforeAll
+    static void setUp() {
+        keyPair = generateRSAKeyPair();
+    }
+
+    private static X509Certificate certificate(String subject) {
+        Instant now = Instant.now();
+        return generateCertificate(keyPair.getPublic(), keyPair.getPrivate(), subject, subject,
+                Date.from(now.minus(1, DAYS)), Date.from(now.plus(1, DAYS)), true, true);
+    }
+
+    @Test
+    @DisplayName("then repeated validation of the same certificate is served from cache")
+    void testCacheHit() throws Exception {
+        X509Certificate certificate = certificate("CN=Cached");
+        ValidatorRule validatorRule = spy(new NamingRule());
+        CachingRule rule = new CachingRule(validatorRule);
+
+        Report first = rule.validate(certificate, SimpleReport.newInstance());
+        Report second = rule.validate(certificate, SimpleReport.newInstance());
+
+        assertAll(
+                () -> verify(validatorRule, times(1)).validate(eq(certificate), any(Report.class)),
+                () -> assertEquals("value", first.get(PrincipalNameRule.NAME)),
+                () -> assertEquals("value", second.get(PrincipalNameRule.NAME)),
+                () -> assertEquals(1, rule.getHitCount()),
+                () -> assertEquals(1, rule.getMissCount())
+        );
+    }
+
+    @Test
+    @DisplayName("then failed validations are cached")
+    void testFailureCached() throws Exception {
+        X509Certificate certificate = certificate("CN=Failing");
+        ValidatorRule validatorRule = spy(DummyRule.alwaysFail("Failing."));
+        CachingRule rule = new CachingRule(validatorRule);
+
+        assertThrows(FailedValidationException.class, () -> rule.validate(certificate));
+        FailedValidationException e = assertThrows(FailedValidationException.class, () -> rule.validate(certificate));
+
+        assertEquals("Failing.", e.getMessage());
+        verify(validatorRule, times(1)).validateToResult(eq(certificate), any(Report.class));
+    }
+
+    @Test
+    @DisplayName("then results expire at next update of consulted CRLs")
+    void testExpiresAtNextUpdate() throws Exception {
+        X509Certificate certificate = certificate("CN=Expiring");
+        ValidatorRule validatorRule = spy(new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) {
+                report.set(CRLRule.NEXT_UPDATE, new Date(System.currentTimeMillis() - 1));
+                return report;
+            }
+        });
+        CachingRule rule = new CachingRule(validatorRule);
+
+        rule.validate(certificate);
+        rule.validate(certificate);
+
+        assertEquals(0, rule.getHitCount());
+        verify(validatorRule, times(2)).validate(eq(certificate), any(Report.class));
+    }
+
+    @Test
+    @DisplayName("then next update reaches cache through HandleErrorRule and handled errors are not cached")
+    void testHandleErrorRule() throws Exception {
+        X509Certificate certificate = certificate("CN=Handled");
+        ValidatorRule expiring = spy(new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) {
+                report.set(CRLRule.NEXT_UPDATE, new Date(System.currentTimeMillis() - 1));
+                return report;
+            }
+        });
+        CachingRule rule = new CachingRule(new HandleErrorRule(expiring));
+
+        rule.validate(certificate);
+        rule.validate(certificate);
+        verify(expiring, times(2)).validate(eq(certificate), any(Report.class));
+
+        ValidatorRule unavailable = spy(new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+                throw new CertificateValidationException("Unavailable.");
+            }
+        });
+        rule = new CachingRule(new HandleErrorRule(unavailable));
+
+        rule.validate(certificate);
+        rule.validate(certificate);
+        assertEquals(0, rule.size());
+        verify(unavailable, times(2)).validate(eq(certificate), any(Report.class));
+    }
+
+    @Test
+    @DisplayName("then least recently used results are evicted when cache is full")
+    void testEviction() throws Exception {
+        CachingRule rule = new CachingRule(DummyRule.alwaysSuccess(), CachingRule.DEFAULT_TTL_MILLIS, 1);
+
+        rule.validate(certificate("CN=First"));
+        rule.validate(certificate("CN=Second"));
+
+        assertEquals(1, rule.size());
+        assertEquals(1, rule.getEvictionCount());
+    }
+
+    private static class NamingRule extends AbstractRule {
+        @Override
+        public Report validate(X509Certificate certificate, Report report) {
+            report.set(PrincipalNameRule.NAME, "value");
+            return report;
+        }
+    }
+}
@@ -20,8 +20,7 @@ import java.util.Date;
 import static java.time.temporal.ChronoUnit.DAYS;
 import static no.idporten.validator.certificate.testutil.TestDataUtils.generateCertificate;
 import static no.idporten.validator.certificate.testutil.TestDataUtils.generateRSAKeyPair;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 @DisplayName("When validating chain of certificates")
 public class ChainRuleTest {
@@ -78,4 +77,25 @@ public class ChainRuleTest {
 
     }
 
+    @DisplayName("Trust material should be rebuilt when certificate bucket is changed")
+    @Test
+    public void bucketChanged() throws Exception {
+        final var now = Instant.now();
+        final var caKeys = generateRSAKeyPair();
+        final var signatureKeys = generateRSAKeyPair();
+
+        final X509Certificate rootCertificate = generateCertificate(caKeys.getPublic(), caKeys.getPrivate(), "CN=Sertifikatcompagniet CA", "CN=Sertifikatcompagniet CA",
+                Date.from(now.minus(1, DAYS)), Date.from(now.plus(720, DAYS)), true, true);
+        final X509Certificate signatureCertificate = generateCertificate(signatureKeys.getPublic(), caKeys.getPrivate(), "CN=Sertifikatcompagniet CA", "CN=Sertifikatcompagniet Testsertifikat",
+                Date.from(now.minus(1, DAYS)), Date.from(now.plus(90, DAYS)), false, false);
+
+        SimpleCertificateBucket rootCertificates = new SimpleCertificateBucket();
+        Validator validator = new Validator(new ChainRule(rootCertificates, new SimpleCertificateBucket()));
+
+        assertFalse(validator.isValid(signatureCertificate));
+
+        rootCertificates.add(rootCertificate);
+        assertTrue(validator.isValid(signatureCertificate));
+    }
+
 }
@@ -3,7 +3,12 @@ package no.idporten.validator.certificate.rule;
 
 import no.idporten.validator.certificate.api.CertificateValidationException;
 import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.FailureCode;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.structure.AndJunction;
 import no.idporten.validator.certificate.testutil.X509TestGenerator;
+import no.idporten.validator.certificate.util.SimpleReport;
 import org.bouncycastle.cert.CertIOException;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.junit.jupiter.api.DisplayName;
@@ -18,7 +23,10 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("When validation expiration rules")
 public class ExpirationRuleTest extends X509TestGenerator {
@@ -55,4 +63,21 @@ public class ExpirationRuleTest extends X509TestGenerator {
                 () -> validator.validate(cert));
         assertEquals("Certificate does not have a valid expiration date.", exception.getMessage());
     }
+
+    @Test
+    @DisplayName("validation to result should report expired certificate without exception")
+    public void shouldReportExpiredCertificateAsResult() throws NoSuchAlgorithmException, SignatureException, InvalidKeyException, CertificateException, CertIOException, OperatorCreationException {
+        X509Certificate valid = createX509Certificate(toDate(ZonedDateTime.now(ZoneId.systemDefault()).minusDays(10)), toDate(ZonedDateTime.now(ZoneId.systemDefault()).plusDays(10)));
+        X509Certificate expired = createX509Certificate(toDate(ZonedDateTime.now(ZoneId.systemDefault()).minusDays(10)), toDate(ZonedDateTime.now(ZoneId.systemDefault()).minusDays(2)));
+        ValidatorRule rule = new AndJunction(new ExpirationRule(), new ExpirationSoonRule(1000));
+
+        assertTrue(rule.validateToResult(valid, SimpleReport.newInstance()).isValid());
+
+        ValidationOutcome outcome = rule.validateToResult(expired, SimpleReport.newInstance());
+        assertFalse(outcome.isValid());
+        assertEquals(FailureCode.EXPIRED, outcome.getFailureCode());
+        assertNull(outcome.getException());
+        assertEquals("Certificate does not have a valid expiration date.", outcome.getMessage());
+        assertThrows(FailedValidationException.class, outcome::orThrow);
+    }
 }
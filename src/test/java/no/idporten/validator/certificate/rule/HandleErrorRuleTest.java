@@ -52,7 +52,8 @@ public class HandleErrorRuleTest {
 
     @Test
     @DisplayName("validation should fail if wrapped rule fails, and errorhandler in HandleErrorRule should be invoked, " +
-            "here CertificateValidationException is transformed to FailedValidationException with the same message")
+            "here CertificateValidationException of the wrapped rule given the report is transformed to " +
+            "FailedValidationException with the same message")
     public void triggerException()  {
         Validator validator = new Validator(new HandleErrorRule(e -> {
             throw new FailedValidationException(e.getMessage(), e);
@@ -69,6 +70,6 @@ public class HandleErrorRuleTest {
         }));
         FailedValidationException failedValidationException = assertThrows(FailedValidationException.class,
                 () -> validator.validate(getClass().getResourceAsStream("/selfsigned.cer")));
-        assertEquals("Test", failedValidationException.getMessage());
+        assertEquals("Test2", failedValidationException.getMessage());
     }
 }
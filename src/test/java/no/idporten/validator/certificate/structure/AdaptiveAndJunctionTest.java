@@ -0,0 +1,84 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.IndependentRule;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.AbstractRule;
+import no.idporten.validator.certificate.rule.DummyRule;
+import no.idporten.validator.certificate.util.SimpleReport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("When validating using an adaptive and-junction")
+public class AdaptiveAndJunctionTest {
+
+    @Test
+    @DisplayName("then cheap rejecting independent rules are moved before expensive rules, but not past barriers")
+    void testReorder() {
+        ValidatorRule barrier = new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) {
+                return report;
+            }
+        };
+        ValidatorRule expensive = new Expensive();
+        ValidatorRule rejecting = new DummyRule("Rejected");
+        ValidatorRule accepting = new DummyRule();
+
+        AdaptiveAndJunction junction = new AdaptiveAndJunction(8, Arrays.asList(accepting, barrier, expensive, rejecting));
+        assertEquals(Arrays.asList(accepting, barrier, expensive, rejecting), junction.getOrder());
+
+        for (int i = 0; i < 16; i++)
+            assertFalse(junction.validateToResult(mock(X509Certificate.class), SimpleReport.newInstance()).isValid());
+
+        assertEquals(Arrays.asList(accepting, barrier, rejecting, expensive), junction.getOrder());
+    }
+
+    @Test
+    @DisplayName("then the verdict is stable while the reported failure follows the learned order")
+    void testStableVerdict() {
+        ValidatorRule expensive = new Expensive("Expensive");
+        ValidatorRule rejecting = new DummyRule("Rejected");
+
+        AdaptiveAndJunction junction = new AdaptiveAndJunction(8, Arrays.asList(expensive, rejecting));
+        assertEquals("Expensive", junction.validateToResult(mock(X509Certificate.class), SimpleReport.newInstance()).getMessage());
+
+        for (int i = 0; i < 16; i++)
+            assertFalse(junction.validateToResult(mock(X509Certificate.class), SimpleReport.newInstance()).isValid());
+
+        assertEquals(Arrays.asList(rejecting, expensive), junction.getOrder());
+        assertEquals("Rejected", junction.validateToResult(mock(X509Certificate.class), SimpleReport.newInstance()).getMessage());
+    }
+
+    private static class Expensive extends AbstractRule implements IndependentRule {
+
+        private final String message;
+
+        Expensive() {
+            this(null);
+        }
+
+        Expensive(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public Report validate(X509Certificate certificate, Report report) throws FailedValidationException {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (message != null)
+                throw new FailedValidationException(message);
+            return report;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.ChainRule;
+import no.idporten.validator.certificate.util.SimpleCertificateBucket;
+import no.idporten.validator.certificate.util.SimpleReport;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.Date;
+
+import static java.time.temporal.ChronoUnit.DAYS;
+import static no.idporten.validator.certificate.testutil.TestDataUtils.generateCertificate;
+import static no.idporten.validator.certificate.testutil.TestDataUtils.generateRSAKeyPair;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("When dispatching certificates by issuer")
+public class IssuerJunctionTest {
+    static {
+        // required to generate certificates
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private final Instant now = Instant.now();
+
+    @Test
+    @DisplayName("then only chains trusting the issuer are validated")
+    void testDispatch() throws Exception {
+        KeyPair firstKeys = generateRSAKeyPair();
+        KeyPair secondKeys = generateRSAKeyPair();
+        KeyPair signatureKeys = generateRSAKeyPair();
+
+        X509Certificate firstRoot = root(firstKeys, "CN=First CA");
+        X509Certificate secondRoot = root(secondKeys, "CN=Second CA");
+        X509Certificate signatureCertificate = leaf(signatureKeys, secondKeys, "CN=Second CA");
+        X509Certificate unknownCertificate = leaf(signatureKeys, signatureKeys, "CN=Unknown CA");
+
+        ChainRule first = spy(new ChainRule(new SimpleCertificateBucket(firstRoot), new SimpleCertificateBucket()));
+        SimpleCertificateBucket secondRoots = new SimpleCertificateBucket();
+        ChainRule second = spy(new ChainRule(secondRoots, new SimpleCertificateBucket()));
+        ValidatorRule junction = Junction.issuer(first, second);
+
+        assertFalse(junction.validateToResult(signatureCertificate, SimpleReport.newInstance()).isValid());
+        verify(first, never()).validateToResult(any(), any());
+        verify(second, never()).validateToResult(any(), any());
+
+        secondRoots.add(secondRoot);
+        assertTrue(junction.validateToResult(signatureCertificate, SimpleReport.newInstance()).isValid());
+        verify(first, never()).validateToResult(any(), any());
+
+        FailedValidationException exception = assertThrows(FailedValidationException.class,
+                () -> junction.validate(unknownCertificate, SimpleReport.newInstance()));
+        assertTrue(exception.getMessage().contains("No branch trusts issuer CN=Unknown CA"));
+    }
+
+    @Test
+    @DisplayName("then chains within and-junctions are indexed")
+    void testNestedChain() throws Exception {
+        KeyPair firstKeys = generateRSAKeyPair();
+        KeyPair secondKeys = generateRSAKeyPair();
+        KeyPair signatureKeys = generateRSAKeyPair();
+
+        X509Certificate signatureCertificate = leaf(signatureKeys, secondKeys, "CN=Second CA");
+
+        ValidatorRule first = spy(new AndJunction(
+                new ChainRule(new SimpleCertificateBucket(root(firstKeys, "CN=First CA")), new SimpleCertificateBucket())));
+        ValidatorRule second = spy(new AndJunction(
+                new ChainRule(new SimpleCertificateBucket(root(secondKeys, "CN=Second CA")), new SimpleCertificateBucket())));
+        ValidatorRule junction = Junction.issuer(first, second);
+
+        assertTrue(junction.validateToResult(signatureCertificate, SimpleReport.newInstance()).isValid());
+        verify(first, never()).validateToResult(any(), any());
+    }
+
+    private X509Certificate root(KeyPair keyPair, String subject) throws Exception {
+        return generateCertificate(keyPair.getPublic(), keyPair.getPrivate(), subject, subject,
+                Date.from(now.minus(1, DAYS)), Date.from(now.plus(720, DAYS)), true, true);
+    }
+
+    private X509Certificate leaf(KeyPair keyPair, KeyPair issuerKeyPair, String issuer) throws Exception {
+        return generateCertificate(keyPair.getPublic(), issuerKeyPair.getPrivate(), issuer, "CN=Testsertifikat",
+                Date.from(now.minus(1, DAYS)), Date.from(now.plus(90, DAYS)), false, false);
+    }
+}
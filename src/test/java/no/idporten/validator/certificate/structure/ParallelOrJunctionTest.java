@@ -0,0 +1,112 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.FailedValidationException;
+import no.idporten.validator.certificate.api.Report;
+import no.idporten.validator.certificate.api.ValidationOutcome;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.AbstractRule;
+import no.idporten.validator.certificate.util.SimpleReport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("When validating or-junction branches in parallel")
+public class ParallelOrJunctionTest {
+
+    private final X509Certificate certificate = mock(X509Certificate.class);
+
+    @Test
+    @DisplayName("then the first successful branch is returned without interrupting slower branches")
+    void testFirstSuccess() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        ValidatorRule slow = new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+                try {
+                    release.await(60, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                completed.countDown();
+                throw new FailedValidationException("Slow");
+            }
+        };
+
+        ValidationOutcome outcome = Junction.parallelOr(slow, failing("Failing"), succeeding())
+                .validateToResult(certificate, SimpleReport.newInstance());
+
+        assertTrue(outcome.isValid());
+        release.countDown();
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    @DisplayName("then branches are validated asynchronously without blocking")
+    void testAsync() throws Exception {
+        CompletableFuture<ValidationOutcome> pending = new CompletableFuture<>();
+        ValidatorRule slow = new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) {
+                throw new IllegalStateException("Not used");
+            }
+
+            @Override
+            public CompletableFuture<ValidationOutcome> validateAsync(X509Certificate certificate, Report report, Executor executor) {
+                return pending;
+            }
+        };
+
+        ValidationOutcome outcome = Junction.parallelOr(slow, failing("Failing"), succeeding())
+                .validateAsync(certificate, SimpleReport.newInstance(), Runnable::run)
+                .get(10, TimeUnit.SECONDS);
+        assertTrue(outcome.isValid());
+        assertTrue(pending.isCancelled());
+
+        outcome = Junction.parallelOr(failing("First"), failing("Second"))
+                .validateAsync(certificate, SimpleReport.newInstance(), Runnable::run)
+                .get(10, TimeUnit.SECONDS);
+        assertFalse(outcome.isValid());
+        assertEquals("Or-junction failed with results:\n* First\n* Second", outcome.getMessage());
+    }
+
+    @Test
+    @DisplayName("then failures are aggregated in order of branches when all branches fail")
+    void testAllFailing() {
+        ValidationOutcome outcome = Junction.parallelOr(failing("First"), failing("Second"))
+                .validateToResult(certificate, SimpleReport.newInstance());
+
+        assertFalse(outcome.isValid());
+        assertEquals("Or-junction failed with results:\n* First\n* Second", outcome.getMessage());
+    }
+
+    private static ValidatorRule succeeding() {
+        return new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) {
+                return report;
+            }
+        };
+    }
+
+    private static ValidatorRule failing(String message) {
+        return new AbstractRule() {
+            @Override
+            public Report validate(X509Certificate certificate, Report report) throws CertificateValidationException {
+                throw new FailedValidationException(message);
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package no.idporten.validator.certificate.structure;
+
+import no.idporten.validator.certificate.Validator;
+import no.idporten.validator.certificate.ValidatorBuilder;
+import no.idporten.validator.certificate.api.ValidatorRule;
+import no.idporten.validator.certificate.rule.DummyRule;
+import no.idporten.validator.certificate.rule.ExpirationRule;
+import no.idporten.validator.certificate.rule.HandleErrorRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("When compiling a tree of rules")
+public class RulePlannerTest {
+
+    @Test
+    @DisplayName("then nested junctions are flattened, repeated rules removed and single rule junctions replaced")
+    void testOptimize() {
+        ValidatorRule expiration = new ExpirationRule();
+        ValidatorRule first = new DummyRule();
+        ValidatorRule second = new DummyRule();
+
+        Validator validator = ValidatorBuilder.newInstance()
+                .addRule(expiration)
+                .addRule(Junction.and(first, Junction.and(expiration, second)))
+                .addRule(new HandleErrorRule(new AndJunction(first)))
+                .addRule(new OrJunction(first, new OrJunction(second, first)))
+                .optimize()
+                .build();
+
+        assertEquals("FlatAndJunction\n" +
+                "  ExpirationRule\n" +
+                "  DummyRule\n" +
+                "  DummyRule\n" +
+                "  HandleErrorRule\n" +
+                "    DummyRule\n" +
+                "  OrJunction\n" +
+                "    DummyRule\n" +
+                "    DummyRule", validator.explain());
+    }
+
+    @Test
+    @DisplayName("then the compiled tree gives the same outcome")
+    void testSameOutcome() {
+        ValidatorRule tree = Junction.and(new DummyRule(), Junction.and(new DummyRule(), new DummyRule("Failed")));
+        X509Certificate certificate = mock(X509Certificate.class);
+
+        ValidatorRule optimized = RulePlanner.optimize(tree);
+        assertEquals(Arrays.asList(FlatAndJunction.class, 3), Arrays.asList(optimized.getClass(), ((AbstractJunction) optimized).getRules().size()));
+        assertEquals(new Validator(tree).validateToResult(certificate).getMessage(),
+                new Validator(optimized).validateToResult(certificate).getMessage());
+    }
+}
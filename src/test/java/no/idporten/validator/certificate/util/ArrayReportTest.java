@@ -0,0 +1,71 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.Property;
+import no.idporten.validator.certificate.api.Report;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When using an array report")
+public class ArrayReportTest {
+
+    private static final Property<String> NAME = SimpleProperty.create();
+
+    private static final Property<Integer> NUMBER = SimpleProperty.create();
+
+    private static final Property<String> OTHER = new Property<String>() {
+    };
+
+    @Test
+    @DisplayName("then values are kept per property")
+    void testSetAndGet() {
+        Report report = ArrayReport.newInstance();
+        assertFalse(report.contains(NAME));
+        assertNull(report.get(NAME));
+
+        report.set(NAME, "name");
+        report.set(NUMBER, null);
+        report.set(OTHER, "other");
+
+        assertEquals("name", report.get(NAME));
+        assertTrue(report.contains(NUMBER));
+        assertNull(report.get(NUMBER));
+        assertEquals("other", report.get(OTHER));
+        assertEquals(3, report.keys().size());
+        assertTrue(report.keys().contains(NAME));
+    }
+
+    @Test
+    @DisplayName("then copies are independent of each other")
+    void testCopy() {
+        Report report = ArrayReport.newInstance();
+        report.set(NAME, "original");
+        report.set(OTHER, "original");
+
+        Report copy = report.copy();
+        copy.set(NAME, "copy");
+        copy.set(OTHER, "copy");
+        report.set(NUMBER, 1);
+
+        assertEquals("original", report.get(NAME));
+        assertEquals("original", report.get(OTHER));
+        assertEquals("copy", copy.get(NAME));
+        assertEquals("copy", copy.get(OTHER));
+        assertFalse(copy.contains(NUMBER));
+    }
+
+    @Test
+    @DisplayName("then properties created after the report are supported")
+    void testLateProperty() {
+        Report report = ArrayReport.newInstance();
+        Property<String> late = SimpleProperty.create();
+
+        report.set(late, "late");
+        report.set(NAME, "name");
+        assertEquals("late", report.get(late));
+        assertEquals("name", report.get(NAME));
+        assertTrue(report.keys().contains(late));
+        assertTrue(report.keys().contains(NAME));
+    }
+}
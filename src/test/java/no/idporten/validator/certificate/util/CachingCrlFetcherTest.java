@@ -23,7 +23,8 @@ public class CachingCrlFetcherTest {
         CachingCrlFetcher crlFetcher = spy(new CachingCrlFetcher(crlCache));
         doReturn(crl).when(crlFetcher).download(eq(crlDistributionPoint));
         assertNotNull(crlFetcher.get(crlDistributionPoint));
-        verify(crlCache).get(crlDistributionPoint);
+        // Checked by caller and again by download leader.
+        verify(crlCache, times(2)).get(crlDistributionPoint);
     }
 
     @DisplayName("then an expired CRL will trigger a download")
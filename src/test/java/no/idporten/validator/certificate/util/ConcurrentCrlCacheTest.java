@@ -0,0 +1,90 @@
+package no.idporten.validator.certificate.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509CRL;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("When using a concurrent crl cache")
+public class ConcurrentCrlCacheTest {
+
+    @Test
+    @DisplayName("then CRLs are stored, weighed and removed")
+    void testSetAndRemove() throws Exception {
+        ConcurrentCrlCache crlCache = new ConcurrentCrlCache();
+        X509CRL crl = crl(100);
+
+        crlCache.set("http://crl.example.com/a.crl", crl);
+        assertSame(crl, crlCache.get("http://crl.example.com/a.crl"));
+        assertTrue(crlCache.getUrls().contains("http://crl.example.com/a.crl"));
+        assertEquals(100, crlCache.getBytes());
+
+        crlCache.set("http://crl.example.com/a.crl", crl(40));
+        assertEquals(40, crlCache.getBytes());
+
+        crlCache.set("http://crl.example.com/a.crl", null);
+        assertNull(crlCache.get("http://crl.example.com/a.crl"));
+        assertTrue(crlCache.getUrls().isEmpty());
+        assertEquals(0, crlCache.getBytes());
+    }
+
+    @Test
+    @DisplayName("then least recently used CRLs are evicted when exceeding budget")
+    void testEviction() throws Exception {
+        ConcurrentCrlCache crlCache = new ConcurrentCrlCache(250);
+
+        crlCache.set("a", crl(100));
+        Thread.sleep(1);
+        crlCache.set("b", crl(100));
+        Thread.sleep(1);
+        assertNotNull(crlCache.get("a"));
+
+        crlCache.set("c", crl(100));
+
+        assertNotNull(crlCache.get("a"));
+        assertNull(crlCache.get("b"));
+        assertNotNull(crlCache.get("c"));
+        assertEquals(200, crlCache.getBytes());
+        assertEquals(1, crlCache.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("then a CRL exceeding budget alone is kept")
+    void testOversized() throws Exception {
+        ConcurrentCrlCache crlCache = new ConcurrentCrlCache(50);
+
+        crlCache.set("a", crl(10));
+        crlCache.set("b", crl(100));
+
+        assertNull(crlCache.get("a"));
+        assertNotNull(crlCache.get("b"));
+        assertEquals(100, crlCache.getBytes());
+    }
+
+    @Test
+    @DisplayName("then eviction frees memory below the low water mark in one pass")
+    void testLowWaterMark() throws Exception {
+        ConcurrentCrlCache crlCache = new ConcurrentCrlCache(1000);
+        for (int i = 0; i < 10; i++) {
+            crlCache.set("crl" + i, crl(100));
+            Thread.sleep(1);
+        }
+
+        crlCache.set("crl10", crl(100));
+
+        assertEquals(2, crlCache.getEvictionCount());
+        assertTrue(crlCache.getBytes() <= 900);
+        assertNull(crlCache.get("crl0"));
+        assertNull(crlCache.get("crl1"));
+        assertNotNull(crlCache.get("crl10"));
+    }
+
+    private static X509CRL crl(int size) throws Exception {
+        X509CRL crl = mock(X509CRL.class);
+        when(crl.getEncoded()).thenReturn(new byte[size]);
+        return crl;
+    }
+}
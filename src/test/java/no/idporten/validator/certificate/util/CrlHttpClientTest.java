@@ -0,0 +1,130 @@
+package no.idporten.validator.certificate.util;
+
+import com.sun.net.httpserver.HttpServer;
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.security.cert.X509CRL;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When downloading CRLs using HTTP")
+public class CrlHttpClientTest {
+
+    private static final String ETAG = "\"crl-1\"";
+
+    private HttpServer server;
+
+    private byte[] encoded;
+
+    private final AtomicInteger transfers = new AtomicInteger();
+
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (InputStream inputStream = getClass().getResourceAsStream("/peppol-test-ap.crl")) {
+            encoded = inputStream.readAllBytes();
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/crl", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = encoded;
+                if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                        gzip.write(encoded);
+                    }
+                    body = compressed.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                transfers.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return String.format("http://127.0.0.1:%s%s", server.getAddress().getPort(), path);
+    }
+
+    @Test
+    @DisplayName("then a compressed CRL is downloaded and an unchanged CRL is not transferred again")
+    void testConditionalDownload() throws Exception {
+        CrlHttpClient client = new CrlHttpClient(1000, 1000);
+
+        X509CRL crl = client.download(url("/crl"), null);
+        assertArrayEquals(encoded, crl.getEncoded());
+
+        assertSame(crl, client.download(url("/crl"), crl));
+        assertEquals(1, transfers.get());
+        assertEquals(1, notModified.get());
+
+        assertEquals(crl, client.download(url("/crl"), null));
+        assertEquals(2, transfers.get());
+    }
+
+    @Test
+    @DisplayName("then an unchanged revocation index is not transferred again")
+    void testConditionalIndexDownload() throws Exception {
+        CrlHttpClient client = new CrlHttpClient();
+
+        RevocationIndex index = client.downloadIndex(url("/crl"), null, false, null);
+        assertTrue(index.size() > 0);
+
+        assertSame(index, client.downloadIndex(url("/crl"), index, false, null));
+        assertEquals(1, transfers.get());
+    }
+
+    @Test
+    @DisplayName("then an unexpected status fails the download")
+    void testUnexpectedStatus() {
+        assertThrows(CertificateValidationException.class, () -> new CrlHttpClient().download(url("/missing"), null));
+    }
+
+    @Test
+    @DisplayName("then validators stored with a cached CRL allow a conditional request after restart")
+    void testValidatorsStoredWithCrl(@TempDir Path folder) throws Exception {
+        CrlHttpClient client = new CrlHttpClient();
+        new SimpleCachingCrlFetcher(new DirectoryCrlCache(folder, client), client).get(url("/crl"));
+        assertEquals(1, transfers.get());
+
+        CrlHttpClient restarted = new CrlHttpClient();
+        SimpleCachingCrlFetcher crlFetcher = new SimpleCachingCrlFetcher(new DirectoryCrlCache(folder, restarted), restarted);
+        X509CRL crl = crlFetcher.crlCache.get(url("/crl"));
+
+        assertEquals(crl, crlFetcher.download(url("/crl")));
+        assertEquals(1, transfers.get());
+        assertEquals(1, notModified.get());
+    }
+}
@@ -0,0 +1,76 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.Validator;
+import no.idporten.validator.certificate.api.AsyncCrlFetcher;
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import no.idporten.validator.certificate.api.CrlFetcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("When prefetching CRLs")
+public class CrlPrefetcherTest {
+
+    private static final String CRL_URL = "http://pilotonsitecrl.verisign.com/DigitaliseringsstyrelsenPilotOpenPEPPOLACCESSPOINTCA/LatestCRL.crl";
+
+    @Test
+    @DisplayName("then CRLs of certificates in buckets are stored in cache before ready")
+    void testPrefetchIntoCache() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        X509CRL crl = mock(X509CRL.class);
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        SimpleCachingCrlFetcher crlFetcher = spy(new SimpleCachingCrlFetcher(crlCache));
+        doReturn(crl).when(crlFetcher).download(CRL_URL);
+
+        CrlPrefetcher prefetcher = new CrlPrefetcher(crlFetcher).addBucket(SimpleCertificateBucket.with(certificate));
+        assertTrue(prefetcher.getUrls().contains(CRL_URL));
+        assertFalse(prefetcher.isReady());
+
+        prefetcher.prefetch().get(10, TimeUnit.SECONDS);
+
+        assertTrue(prefetcher.isReady());
+        assertSame(crl, crlCache.get(CRL_URL));
+    }
+
+    @Test
+    @DisplayName("then failing downloads do not prevent readiness")
+    void testFailingDownload() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        CrlFetcher crlFetcher = mock(CrlFetcher.class);
+        when(crlFetcher.get(anyString())).thenThrow(new CertificateValidationException("Unavailable"));
+
+        CrlPrefetcher prefetcher = new CrlPrefetcher(crlFetcher).addCertificate(certificate);
+        prefetcher.prefetch().get(10, TimeUnit.SECONDS);
+
+        assertTrue(prefetcher.isReady());
+        verify(crlFetcher).get(CRL_URL);
+    }
+
+    @Test
+    @DisplayName("then each prefetch completes on its own while readiness follows the first prefetch")
+    void testRepeatedPrefetch() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        CompletableFuture<X509CRL> download = new CompletableFuture<>();
+        AsyncCrlFetcher crlFetcher = mock(AsyncCrlFetcher.class);
+        when(crlFetcher.getAsync(anyString(), any())).thenReturn(CompletableFuture.completedFuture(null), download);
+
+        CrlPrefetcher prefetcher = new CrlPrefetcher(crlFetcher).addCertificate(certificate);
+        CompletableFuture<Void> first = prefetcher.prefetch();
+        first.get(10, TimeUnit.SECONDS);
+        assertTrue(prefetcher.isReady());
+
+        CompletableFuture<Void> second = prefetcher.prefetch();
+        assertNotSame(first, second);
+        assertFalse(second.isDone());
+
+        download.complete(null);
+        second.get(10, TimeUnit.SECONDS);
+    }
+}
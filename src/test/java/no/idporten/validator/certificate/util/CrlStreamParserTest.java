@@ -0,0 +1,167 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.testutil.TestDataUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.CRLException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When parsing a CRL as a stream")
+public class CrlStreamParserTest {
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static final Date NOW = new Date(System.currentTimeMillis() / 1000 * 1000);
+
+    private static X509CRL crl(KeyPair keyPair, int entries) throws Exception {
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Issuer"), NOW);
+        builder.setNextUpdate(new Date(NOW.getTime() + 3600_000));
+        for (int i = 1; i <= entries; i++)
+            builder.addCRLEntry(BigInteger.valueOf(i * 7919L), new Date(NOW.getTime() - i * 1000L), i % 2 == 0 ? CRLReason.keyCompromise : 0);
+
+        return new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    @Test
+    @DisplayName("then the index is the same as the index of the loaded CRL")
+    void testSameAsLoadedCrl() throws Exception {
+        X509CRL crl;
+        try (InputStream inputStream = getClass().getResourceAsStream("/peppol-test-ap.crl")) {
+            crl = CrlUtils.load(inputStream);
+        }
+
+        RevocationIndex index = CrlStreamParser.parse(new ByteArrayInputStream(crl.getEncoded()), true);
+
+        assertEquals(crl.getIssuerX500Principal(), index.getIssuer());
+        assertEquals(crl.getThisUpdate(), index.getThisUpdate());
+        assertEquals(crl.getNextUpdate(), index.getNextUpdate());
+        assertEquals(CrlUtils.getCrlNumber(crl), index.getCrlNumber());
+        assertEquals(crl.getRevokedCertificates().size(), index.size());
+        for (X509CRLEntry entry : crl.getRevokedCertificates()) {
+            assertTrue(index.isRevoked(entry.getSerialNumber()));
+            assertEquals(entry.getRevocationDate(), index.getRevocationDate(entry.getSerialNumber()));
+            assertEquals(entry.getRevocationReason(), index.getRevocationReason(entry.getSerialNumber()));
+        }
+    }
+
+    @Test
+    @DisplayName("then a valid signature is accepted")
+    void testValidSignature() throws Exception {
+        KeyPair keyPair = TestDataUtils.generateRSAKeyPair();
+        X509CRL crl = crl(keyPair, 500);
+
+        RevocationIndex index = CrlStreamParser.parse(new ByteArrayInputStream(crl.getEncoded()), false, issuer -> keyPair.getPublic());
+
+        assertEquals(500, index.size());
+        assertTrue(index.isRevoked(BigInteger.valueOf(7919L * 250)));
+        assertFalse(index.isRevoked(BigInteger.valueOf(7920)));
+        assertEquals(crl.getNextUpdate(), index.getNextUpdate());
+    }
+
+    @Test
+    @DisplayName("then a signature of another key is rejected")
+    void testInvalidSignature() throws Exception {
+        X509CRL crl = crl(TestDataUtils.generateRSAKeyPair(), 10);
+        KeyPair other = TestDataUtils.generateRSAKeyPair();
+
+        assertThrows(CRLException.class,
+                () -> CrlStreamParser.parse(new ByteArrayInputStream(crl.getEncoded()), false, issuer -> other.getPublic()));
+    }
+
+    @Test
+    @DisplayName("then an unknown issuer is rejected")
+    void testUnknownIssuer() throws Exception {
+        X509CRL crl = crl(TestDataUtils.generateRSAKeyPair(), 10);
+
+        assertThrows(CRLException.class,
+                () -> CrlStreamParser.parse(new ByteArrayInputStream(crl.getEncoded()), false, issuer -> null));
+    }
+
+    @Test
+    @DisplayName("then a truncated CRL is rejected")
+    void testTruncated() throws Exception {
+        byte[] encoded = crl(TestDataUtils.generateRSAKeyPair(), 10).getEncoded();
+
+        assertThrows(CRLException.class,
+                () -> CrlStreamParser.parse(new ByteArrayInputStream(encoded, 0, encoded.length - 20), false));
+    }
+
+    @Test
+    @DisplayName("then lengths exceeding the enclosing element or maximum length are rejected without allocation")
+    void testCraftedLengths() {
+        byte[] outOfBounds = {0x30, 0x04, 0x30, (byte) 0x84, 0x7f, (byte) 0xff};
+
+        assertThrows(CRLException.class,
+                () -> CrlStreamParser.parse(new ByteArrayInputStream(outOfBounds), false));
+
+        byte[] hugeEntry = {
+                0x30, (byte) 0x84, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                0x30, (byte) 0x84, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0,
+                0x30, 0x03, 0x06, 0x01, 0x00,
+                0x30, 0x00,
+                0x17, 0x0d, '2', '5', '0', '1', '0', '1', '0', '0', '0', '0', '0', '0', 'Z',
+                0x30, (byte) 0x84, 0x7f, (byte) 0xff, 0x00, 0x00,
+                0x30, (byte) 0x84, 0x7f, (byte) 0xfe, 0x00, 0x00};
+
+        assertThrows(CRLException.class,
+                () -> CrlStreamParser.parse(new ByteArrayInputStream(hugeEntry), false));
+    }
+
+    @Test
+    @DisplayName("then malformed entries, dates and trailing content are rejected as CRLException")
+    void testMalformedContent() throws Exception {
+        byte[] time = {0x17, 0x0d, '2', '5', '0', '1', '0', '1', '0', '0', '0', '0', '0', '0', 'Z'};
+        byte[] invalidTime = {0x17, 0x0d, '2', '5', '1', '3', '0', '1', '0', '0', '0', '0', '0', '0', 'Z'};
+        byte[] algorithm = {0x30, 0x03, 0x06, 0x01, 0x00};
+        byte[] issuer = {0x30, 0x00};
+        byte[] signature = {0x03, 0x01, 0x00};
+
+        byte[] revoked = element(0x30, element(0x30, new byte[]{0x02, 0x05, 0x01}));
+        assertThrows(CRLException.class, () -> CrlStreamParser.parse(new ByteArrayInputStream(
+                element(0x30, element(0x30, algorithm, issuer, time, revoked), algorithm, signature)), false));
+
+        assertThrows(CRLException.class, () -> CrlStreamParser.parse(new ByteArrayInputStream(
+                element(0x30, element(0x30, algorithm, issuer, invalidTime), algorithm, signature)), false));
+
+        byte[] extensions = element(0xa0, new byte[]{0x30, 0x00});
+        CrlStreamParser.parse(new ByteArrayInputStream(
+                element(0x30, element(0x30, algorithm, issuer, time, extensions), algorithm, signature)), false);
+        assertThrows(CRLException.class, () -> CrlStreamParser.parse(new ByteArrayInputStream(
+                element(0x30, element(0x30, algorithm, issuer, time, extensions, algorithm, signature))), false));
+    }
+
+    /**
+     * Encodes element of short length.
+     */
+    private static byte[] element(int tag, byte[]... contents) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] c : contents)
+            content.writeBytes(c);
+
+        ByteArrayOutputStream element = new ByteArrayOutputStream();
+        element.write(tag);
+        element.write(content.size());
+        element.writeBytes(content.toByteArray());
+        return element.toByteArray();
+    }
+}
@@ -0,0 +1,144 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.testutil.TestDataUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.Security;
+import java.security.cert.X509CRL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When using a directory crl cache")
+public class DirectoryCrlCacheTest {
+
+    private static final String URL = "http://crl.example.com/issuer.crl";
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    @Test
+    @DisplayName("then CRLs are stored with an index and no temporary files are left")
+    void testStoreWithIndex(@TempDir Path folder) throws Exception {
+        Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Issuer"), now);
+        builder.setNextUpdate(new Date(now.getTime() + 3600_000));
+        X509CRL crl = new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(TestDataUtils.generateRSAKeyPair().getPrivate())));
+
+        DirectoryCrlCache crlCache = new DirectoryCrlCache(folder);
+        crlCache.set(URL, crl);
+        crlCache.set(URL, crl);
+
+        assertEquals(crl, crlCache.get(URL));
+
+        List<DirectoryCrlCache.Entry> entries = crlCache.getEntries();
+        assertEquals(1, entries.size());
+        assertEquals(URL, entries.get(0).getUrl());
+        assertEquals(crl.getThisUpdate(), entries.get(0).getThisUpdate());
+        assertEquals(crl.getNextUpdate(), entries.get(0).getNextUpdate());
+        assertEquals(Hex.toHexString(MessageDigest.getInstance("SHA-256").digest(crl.getEncoded())), entries.get(0).getDigest());
+
+        try (Stream<Path> files = Files.list(folder)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("then unreadable index files are skipped")
+    void testEntriesSkipUnreadable(@TempDir Path folder) throws Exception {
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Issuer"), new Date());
+        X509CRL crl = new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(TestDataUtils.generateRSAKeyPair().getPrivate())));
+
+        String indexUrl = "http://crl.example.com/issuer.index";
+
+        DirectoryCrlCache crlCache = new DirectoryCrlCache(folder);
+        crlCache.set(URL, crl);
+        crlCache.set(indexUrl, crl);
+        Files.write(folder.resolve("corrupt.index"), "url=\\uZZZZ".getBytes());
+        Files.write(folder.resolve("numeric.index"), "url=http://crl.example.com/numeric.crl\nthisUpdate=never".getBytes());
+
+        List<DirectoryCrlCache.Entry> entries = crlCache.getEntries();
+        assertEquals(2, entries.size());
+        assertTrue(entries.stream().anyMatch(entry -> URL.equals(entry.getUrl())));
+        assertTrue(entries.stream().anyMatch(entry -> indexUrl.equals(entry.getUrl())));
+    }
+
+    @Test
+    @DisplayName("then a stored CRL is read as revocation index")
+    void testIndex(@TempDir Path folder) throws Exception {
+        X509CRL crl;
+        try (InputStream inputStream = getClass().getResourceAsStream("/peppol-test-ap.crl")) {
+            crl = CrlUtils.load(inputStream);
+        }
+
+        DirectoryCrlCache crlCache = new DirectoryCrlCache(folder);
+        assertNull(crlCache.getIndex(URL, true, null));
+        crlCache.set(URL, crl);
+
+        RevocationIndex index = crlCache.getIndex(URL, true, null);
+        assertEquals(crl.getNextUpdate(), index.getNextUpdate());
+        assertEquals(crl.getRevokedCertificates().size(), index.size());
+        BigInteger serialNumber = crl.getRevokedCertificates().iterator().next().getSerialNumber();
+        assertTrue(index.isRevoked(serialNumber));
+    }
+
+    @Test
+    @DisplayName("then a CRL not matching the digest of its index is not returned")
+    void testDigestMismatch(@TempDir Path folder) throws Exception {
+        X509CRL crl;
+        try (InputStream inputStream = getClass().getResourceAsStream("/peppol-test-ap.crl")) {
+            crl = CrlUtils.load(inputStream);
+        }
+
+        DirectoryCrlCache crlCache = new DirectoryCrlCache(folder);
+        crlCache.set(URL, crl);
+        assertNotNull(crlCache.get(URL));
+        assertNotNull(crlCache.getIndex(URL, false, null));
+
+        byte[] content = Files.readAllBytes(crlCache.getFile(URL));
+        Files.write(crlCache.getFile(URL), Arrays.copyOf(content, content.length + 1));
+        assertNull(crlCache.get(URL));
+        assertNull(crlCache.getIndex(URL, false, null));
+
+        Files.write(crlCache.getFile(URL), content);
+        assertNotNull(crlCache.get(URL));
+
+        try (Stream<Path> files = Files.list(folder)) {
+            files.filter(file -> file.toString().endsWith(".index")).forEach(file -> file.toFile().delete());
+        }
+        assertNull(crlCache.get(URL));
+    }
+
+    @Test
+    @DisplayName("then stale temporary files are deleted on creation")
+    void testStaleTemporaryFiles(@TempDir Path folder) throws Exception {
+        Path stale = Files.createFile(folder.resolve(".issuer.crl123.tmp"));
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - 3600_000));
+        Path recent = Files.createFile(folder.resolve(".issuer.crl456.tmp"));
+
+        new DirectoryCrlCache(folder);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+    }
+}
@@ -0,0 +1,69 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When using an indexed certificate bucket")
+public class IndexedCertificateBucketTest {
+
+    private final X509Certificate root = load("/Buypass_Class_3_Test4_Root_CA_G2_ST_root.cer");
+
+    private final X509Certificate intermediate = load("/Buypass_Class_3_Test4_CA_G2_ST_Business_Buypass_Class_3_Test4_Root_CA_G2_ST_intermediary.cer");
+
+    private final X509Certificate other = load("/selfsigned.cer");
+
+    @Test
+    @DisplayName("then certificates are found by subject, key identifier and fingerprint")
+    void testLookups() throws Exception {
+        IndexedCertificateBucket bucket = new IndexedCertificateBucket(root, intermediate);
+
+        assertAll(
+                () -> assertEquals(root, bucket.findBySubject(root.getSubjectX500Principal())),
+                () -> assertEquals(intermediate, bucket.findBySubjectKeyIdentifier(CertificateUtils.subjectKeyIdentifier(intermediate))),
+                () -> assertEquals(intermediate, bucket.findByFingerprint(CertificateUtils.fingerprint(intermediate).toUpperCase())),
+                () -> assertNull(bucket.findBySubject(other.getSubjectX500Principal())),
+                () -> assertTrue(bucket.contains(root)),
+                () -> assertFalse(bucket.contains(other))
+        );
+    }
+
+    @Test
+    @DisplayName("then lookups give the same result as lookups in a simple bucket")
+    void testSameAsSimple() throws Exception {
+        SimpleCertificateBucket simple = new SimpleCertificateBucket(root, intermediate);
+        IndexedCertificateBucket indexed = IndexedCertificateBucket.of(simple);
+
+        for (X509Certificate certificate : new X509Certificate[]{root, intermediate, other}) {
+            assertEquals(simple.findBySubject(certificate.getSubjectX500Principal()), indexed.findBySubject(certificate.getSubjectX500Principal()));
+            assertEquals(simple.findByFingerprint(CertificateUtils.fingerprint(certificate)), indexed.findByFingerprint(CertificateUtils.fingerprint(certificate)));
+            assertEquals(simple.contains(certificate), indexed.contains(certificate));
+            if (CertificateUtils.subjectKeyIdentifier(certificate) != null)
+                assertEquals(simple.findBySubjectKeyIdentifier(CertificateUtils.subjectKeyIdentifier(certificate)), indexed.findBySubjectKeyIdentifier(CertificateUtils.subjectKeyIdentifier(certificate)));
+        }
+    }
+
+    @Test
+    @DisplayName("then duplicates are ignored and version changes when certificates are added")
+    void testAdd() throws Exception {
+        IndexedCertificateBucket bucket = new IndexedCertificateBucket(root);
+        long version = bucket.getVersion();
+
+        bucket.add(root, other);
+
+        assertEquals(2, bucket.asList().size());
+        assertNotEquals(version, bucket.getVersion());
+    }
+
+    private static X509Certificate load(String resource) {
+        try {
+            return Validator.getCertificate(IndexedCertificateBucketTest.class.getResourceAsStream(resource));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.Validator;
+import no.idporten.validator.certificate.api.CertificateBucketException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When using a key store certificate bucket")
+public class KeyStoreCertificateBucketTest {
+
+    @Test
+    @DisplayName("then version changes on reload when the certificate of an alias is replaced")
+    void testVersionOnReplace() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("root", load("/Buypass_Class_3_Test4_Root_CA_G2_ST_root.cer"));
+
+        KeyStoreCertificateBucket bucket = new KeyStoreCertificateBucket(keyStore);
+        long version = bucket.getVersion();
+        assertEquals(version, bucket.getVersion());
+
+        keyStore.setCertificateEntry("root", load("/selfsigned.cer"));
+        assertEquals(version, bucket.getVersion());
+
+        bucket.reload();
+        assertNotEquals(version, bucket.getVersion());
+    }
+
+    @Test
+    @DisplayName("then version is checked again when check interval has passed")
+    void testCheckInterval() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("root", load("/Buypass_Class_3_Test4_Root_CA_G2_ST_root.cer"));
+
+        KeyStoreCertificateBucket bucket = new KeyStoreCertificateBucket(keyStore);
+        bucket.setCheckInterval(0);
+        long version = bucket.getVersion();
+
+        keyStore.setCertificateEntry("root", load("/selfsigned.cer"));
+        Thread.sleep(1);
+
+        assertNotEquals(version, bucket.getVersion());
+    }
+
+    @Test
+    @DisplayName("then last known version is kept when key store cannot be read")
+    void testUnreadable() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        keyStore.setCertificateEntry("root", load("/selfsigned.cer"));
+
+        boolean[] broken = {false};
+        KeyStoreCertificateBucket bucket = new KeyStoreCertificateBucket(keyStore) {
+            @Override
+            protected KeyStore getKeyStore() throws CertificateBucketException {
+                if (broken[0])
+                    throw new CertificateBucketException("Unavailable", null);
+                return super.getKeyStore();
+            }
+        };
+        long version = bucket.getVersion();
+
+        broken[0] = true;
+        bucket.reload();
+        assertEquals(version, bucket.getVersion());
+    }
+
+    private static X509Certificate load(String resource) throws Exception {
+        return Validator.getCertificate(KeyStoreCertificateBucketTest.class.getResourceAsStream(resource));
+    }
+}
@@ -0,0 +1,133 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.testutil.TestDataUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509CRL;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When using a memory and disk crl cache")
+public class MemoryAndDiskCrlCacheTest {
+
+    private static final String URL = "http://crl.example.com/issuer.crl";
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static X509CRL crl(KeyPair keyPair, long thisUpdate) throws Exception {
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Issuer"), new Date(thisUpdate));
+        builder.setNextUpdate(new Date(thisUpdate + 3600_000));
+
+        return new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    @Test
+    @DisplayName("then an unchanged file is not parsed again when period has passed")
+    void testUnchangedFileReused(@TempDir Path folder) throws Exception {
+        X509CRL crl = crl(TestDataUtils.generateRSAKeyPair(), System.currentTimeMillis() / 1000 * 1000);
+        MemoryAndDiskCrlCache crlCache = new MemoryAndDiskCrlCache(folder, 0);
+        crlCache.set(URL, crl);
+        Thread.sleep(5);
+
+        assertSame(crl, crlCache.get(URL));
+
+        Path file = crlCache.getFile(URL);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+        Thread.sleep(5);
+
+        assertSame(crl, crlCache.get(URL));
+    }
+
+    @Test
+    @DisplayName("then a changed file is parsed when period has passed")
+    void testChangedFileParsed(@TempDir Path folder) throws Exception {
+        KeyPair keyPair = TestDataUtils.generateRSAKeyPair();
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        X509CRL crl = crl(keyPair, now - 60_000);
+        X509CRL updated = crl(keyPair, now);
+        MemoryAndDiskCrlCache crlCache = new MemoryAndDiskCrlCache(folder, 0);
+        crlCache.set(URL, crl);
+
+        Path file = crlCache.getFile(URL);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        new DirectoryCrlCache(folder).set(URL, updated);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified + 10_000));
+        Thread.sleep(5);
+
+        assertEquals(updated, crlCache.get(URL));
+
+        Files.write(file, crl.getEncoded());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified + 20_000));
+        Thread.sleep(5);
+        assertNull(crlCache.get(URL), "File not matching digest of index");
+
+        Files.delete(file);
+        Thread.sleep(5);
+        assertNull(crlCache.get(URL));
+    }
+
+    @Test
+    @DisplayName("then a watched folder invalidates CRLs when their files change")
+    void testWatch(@TempDir Path folder) throws Exception {
+        KeyPair keyPair = TestDataUtils.generateRSAKeyPair();
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        X509CRL crl = crl(keyPair, now - 60_000);
+        X509CRL updated = crl(keyPair, now);
+
+        try (MemoryAndDiskCrlCache crlCache = new MemoryAndDiskCrlCache(folder, true)) {
+            crlCache.set(URL, crl);
+            assertSame(crl, crlCache.get(URL));
+
+            new DirectoryCrlCache(folder).set(URL, updated);
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!updated.equals(crlCache.get(URL)) && System.currentTimeMillis() < deadline)
+                Thread.sleep(50);
+
+            assertEquals(updated, crlCache.get(URL));
+        }
+    }
+
+    @Test
+    @DisplayName("then writes of the cache itself do not invalidate CRLs of a watched folder")
+    void testOwnWritesIgnored(@TempDir Path folder) throws Exception {
+        X509CRL crl = crl(TestDataUtils.generateRSAKeyPair(), System.currentTimeMillis() / 1000 * 1000);
+
+        try (MemoryAndDiskCrlCache crlCache = new MemoryAndDiskCrlCache(folder, true)) {
+            crlCache.set(URL, crl);
+            Object cached = crlCache.cache.get(URL);
+            Thread.sleep(500);
+
+            assertSame(cached, crlCache.cache.get(URL));
+        }
+    }
+
+    @Test
+    @DisplayName("then a CRL failing to be written is not kept in memory")
+    void testFailedWrite(@TempDir Path parent) throws Exception {
+        Path folder = parent.resolve("crls");
+        X509CRL crl = crl(TestDataUtils.generateRSAKeyPair(), System.currentTimeMillis() / 1000 * 1000);
+        MemoryAndDiskCrlCache crlCache = new MemoryAndDiskCrlCache(folder);
+        Files.delete(folder);
+
+        crlCache.set(URL, crl);
+
+        assertNull(crlCache.get(URL));
+    }
+}
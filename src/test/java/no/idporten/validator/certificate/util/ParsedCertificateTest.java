@@ -0,0 +1,43 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("When parsing a certificate once")
+public class ParsedCertificateTest {
+
+    @Test
+    @DisplayName("then values parsed from the certificate are reused and match the wrapped certificate")
+    void testParsedValues() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/peppol-test-ap-difi.cer"));
+        ParsedCertificate parsed = ParsedCertificate.of(certificate);
+
+        assertSame(parsed, ParsedCertificate.of(parsed));
+        assertSame(certificate, ParsedCertificate.unwrap(parsed));
+        assertSame(certificate, ParsedCertificate.unwrap(certificate));
+        assertEquals(certificate, parsed);
+        assertEquals(parsed, certificate);
+
+        assertSame(parsed.getSubject(), parsed.getSubject());
+        assertEquals(certificate.getSubjectX500Principal().getName(), parsed.getSubjectX500Principal().getName());
+        assertEquals(Collections.singletonList("http://pilotonsitecrl.verisign.com/DigitaliseringsstyrelsenPilotOpenPEPPOLACCESSPOINTCA/LatestCRL.crl"),
+                parsed.getCrlDistributionPoints());
+        assertSame(parsed.getCrlDistributionPoints(), parsed.getCrlDistributionPoints());
+        assertEquals(CertificateUtils.fingerprint(certificate), CertificateUtils.fingerprint(parsed));
+        assertArrayEquals(certificate.getKeyUsage(), parsed.getKeyUsage());
+    }
+
+    @Test
+    @DisplayName("then a certificate without policies has no policies")
+    void testNoPolicies() throws Exception {
+        X509Certificate certificate = Validator.getCertificate(getClass().getResourceAsStream("/selfsigned.cer"));
+
+        assertTrue(ParsedCertificate.of(certificate).getPolicies().isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.testutil.TestDataUtils;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509CRL;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("When using a persistent async crl cache")
+public class PersistentAsyncCrlCacheTest {
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private static X509CRL crl(KeyPair keyPair, long nextUpdate) throws Exception {
+        Date now = new Date();
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Issuer"), new Date(now.getTime() - 7200_000));
+        builder.setNextUpdate(new Date(now.getTime() + nextUpdate));
+
+        return new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME)
+                .getCRL(builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    @Test
+    @DisplayName("then valid CRLs are loaded from disk on start")
+    void testWarmStart(@TempDir Path folder) throws Exception {
+        KeyPair keyPair = TestDataUtils.generateRSAKeyPair();
+        X509CRL valid = crl(keyPair, 3600_000);
+        X509CRL expired = crl(keyPair, -3600_000);
+
+        PersistentAsyncCrlCache crlCache = new PersistentAsyncCrlCache(folder);
+        crlCache.set("http://crl.example.com/valid.crl", valid);
+        crlCache.set("http://crl.example.com/expired.crl", expired);
+
+        PersistentAsyncCrlCache restarted = new PersistentAsyncCrlCache(folder, 3600_000, 3600_000, 1);
+        assertNull(restarted.get("http://crl.example.com/valid.crl"));
+        try {
+            restarted.start();
+
+            assertEquals(valid, restarted.get("http://crl.example.com/valid.crl"));
+            assertNull(restarted.get("http://crl.example.com/expired.crl"));
+            assertEquals(1, restarted.getUrls().size());
+        } finally {
+            restarted.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("then refresh of loaded CRLs is planned from their Next update-field")
+    void testLoadedNotRefreshed(@TempDir Path folder) throws Exception {
+        KeyPair keyPair = TestDataUtils.generateRSAKeyPair();
+        new PersistentAsyncCrlCache(folder).set("http://crl.example.com/valid.crl", crl(keyPair, 3600_000));
+
+        PersistentAsyncCrlCache restarted = new PersistentAsyncCrlCache(folder, 1, 3600_000, 1);
+        SimpleAsyncCrlCache.CacheUpdater cacheUpdater = spy(restarted.getCacheUpdater());
+        restarted.setCacheUpdater(cacheUpdater);
+        try {
+            restarted.start();
+            Thread.sleep(500);
+
+            verify(cacheUpdater, never()).download(anyString());
+            assertNotNull(restarted.get("http://crl.example.com/valid.crl"));
+        } finally {
+            restarted.stop();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package no.idporten.validator.certificate.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.cert.CRLReason;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.security.cert.X509Certificate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("When using a revocation index")
+public class RevocationIndexTest {
+
+    private X509CRL crl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        try (InputStream inputStream = getClass().getResourceAsStream("/peppol-test-ap.crl")) {
+            crl = CrlUtils.load(inputStream);
+        }
+    }
+
+    @Test
+    @DisplayName("then all serial numbers revoked by the CRL are revoked by the index")
+    void testSameAsCrl() {
+        RevocationIndex index = RevocationIndex.of(crl);
+
+        assertEquals(crl.getRevokedCertificates().size(), index.size());
+        for (X509CRLEntry entry : crl.getRevokedCertificates()) {
+            assertTrue(index.isRevoked(entry.getSerialNumber()));
+            assertEquals(entry.getRevocationDate(), index.getRevocationDate(entry.getSerialNumber()));
+            assertEquals(entry.getRevocationReason(), index.getRevocationReason(entry.getSerialNumber()));
+        }
+        assertFalse(index.isRevoked(BigInteger.ONE));
+        assertFalse(index.isRevoked(new BigInteger("02605AC018D41D0BEEFA124174B1858E", 16)));
+        assertEquals(CRLReason.KEY_COMPROMISE, index.getRevocationReason(new BigInteger("02605AC018D41D0BEEFA124174B1858F", 16)));
+        assertEquals(crl.getNextUpdate(), index.getNextUpdate());
+    }
+
+    @Test
+    @DisplayName("then certificates must be issued by the issuer of the CRL")
+    void testIssuerOfCertificate() {
+        RevocationIndex index = RevocationIndex.of(crl, false);
+        BigInteger serial = new BigInteger("02605AC018D41D0BEEFA124174B1858F", 16);
+
+        X509Certificate revoked = mock(X509Certificate.class);
+        when(revoked.getIssuerX500Principal()).thenReturn(crl.getIssuerX500Principal());
+        when(revoked.getSerialNumber()).thenReturn(serial);
+
+        X509Certificate otherIssuer = mock(X509Certificate.class);
+        when(otherIssuer.getIssuerX500Principal()).thenReturn(new X500Principal("CN=Other"));
+        when(otherIssuer.getSerialNumber()).thenReturn(serial);
+
+        assertTrue(index.isRevoked(revoked));
+        assertFalse(index.isRevoked(otherIssuer));
+        assertNull(index.getRevocationDate(serial));
+    }
+
+    @Test
+    @DisplayName("then entries added in any order are found")
+    void testBuilder() {
+        RevocationIndex.Builder builder = RevocationIndex.builder(new X500Principal("CN=Issuer"), true);
+        for (int i = 1000; i > 0; i--)
+            builder.add(BigInteger.valueOf(i * 7919L).toByteArray(), i, i % 11);
+        builder.add(BigInteger.valueOf(-5).toByteArray(), 0, -1);
+        RevocationIndex index = builder.build();
+
+        assertEquals(1001, index.size());
+        for (int i = 1; i <= 1000; i++)
+            assertTrue(index.isRevoked(BigInteger.valueOf(i * 7919L)));
+        assertTrue(index.isRevoked(BigInteger.valueOf(-5)));
+        assertFalse(index.isRevoked(BigInteger.valueOf(7920)));
+        assertNull(index.getRevocationReason(BigInteger.valueOf(-5)));
+    }
+
+    @Test
+    @DisplayName("then entries of a delta CRL are merged with the base CRL")
+    void testDelta() {
+        X500Principal issuer = new X500Principal("CN=Issuer");
+        RevocationIndex.Builder baseBuilder = RevocationIndex.builder(issuer, true).crlNumber(BigInteger.TEN);
+        for (int i = 1; i <= 100; i++)
+            baseBuilder.add(BigInteger.valueOf(i * 2).toByteArray(), i, CRLReason.CERTIFICATE_HOLD.ordinal());
+        RevocationIndex base = baseBuilder.build();
+
+        RevocationIndex delta = RevocationIndex.builder(issuer, true)
+                .crlNumber(BigInteger.valueOf(11))
+                .baseCrlNumber(BigInteger.TEN)
+                .add(BigInteger.valueOf(3).toByteArray(), 1000, CRLReason.KEY_COMPROMISE.ordinal())
+                .add(BigInteger.valueOf(4).toByteArray(), 1000, CRLReason.REMOVE_FROM_CRL.ordinal())
+                .add(BigInteger.valueOf(6).toByteArray(), 1000, CRLReason.KEY_COMPROMISE.ordinal())
+                .build();
+
+        assertTrue(delta.isDelta());
+        assertTrue(delta.isDeltaOf(base));
+        assertFalse(delta.isRevoked(BigInteger.valueOf(4)));
+
+        RevocationIndex merged = base.withDelta(delta);
+        assertEquals(100, merged.size());
+        assertTrue(merged.isRevoked(BigInteger.valueOf(2)));
+        assertTrue(merged.isRevoked(BigInteger.valueOf(3)));
+        assertFalse(merged.isRevoked(BigInteger.valueOf(4)));
+        assertEquals(CRLReason.KEY_COMPROMISE, merged.getRevocationReason(BigInteger.valueOf(6)));
+        assertEquals(CRLReason.CERTIFICATE_HOLD, merged.getRevocationReason(BigInteger.valueOf(8)));
+        assertSame(base, merged.getBase());
+        assertSame(base, merged.withDelta(delta).getBase());
+
+        RevocationIndex unrelated = RevocationIndex.builder(issuer, false)
+                .crlNumber(BigInteger.valueOf(12))
+                .baseCrlNumber(BigInteger.valueOf(11))
+                .build();
+        assertFalse(unrelated.isDeltaOf(base));
+        assertThrows(IllegalArgumentException.class, () -> base.withDelta(unrelated));
+    }
+}
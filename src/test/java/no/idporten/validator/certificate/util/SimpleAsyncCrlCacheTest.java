@@ -4,9 +4,11 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.security.cert.X509CRL;
+import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @DisplayName("When using a simple async crl cache")
@@ -40,4 +42,66 @@ public class SimpleAsyncCrlCacheTest {
 
     }
 
+    @Test
+    @DisplayName("then starting the cache updater again replaces the previous scheduler")
+    void testRestart() throws Exception {
+        SimpleAsyncCrlCache crlCache = new SimpleAsyncCrlCache(200L, 60 * 1000L);
+        crlCache.set("http://crl.idporten.no/crl1", mock(X509CRL.class));
+        crlCache.set("http://crl.idporten.no/crl2", mock(X509CRL.class));
+        SimpleAsyncCrlCache.CacheUpdater cacheUpdater = spy(crlCache.getCacheUpdater());
+        doReturn(mock(X509CRL.class)).when(cacheUpdater).download(anyString());
+        crlCache.setCacheUpdater(cacheUpdater);
+
+        crlCache.start();
+        crlCache.start();
+        Thread.sleep(1000);
+        crlCache.stop();
+
+        verify(cacheUpdater, times(2)).download(anyString());
+    }
+
+    @Test
+    @DisplayName("then refresh of a CRL is planned from its next update")
+    void testRefreshPlannedFromNextUpdate() {
+        long hour = 60 * 60 * 1000L;
+        long now = System.currentTimeMillis();
+        SimpleAsyncCrlCache.CacheUpdater cacheUpdater = new SimpleAsyncCrlCache(1L, 4 * hour).getCacheUpdater();
+
+        X509CRL expiresSoon = mock(X509CRL.class);
+        when(expiresSoon.getThisUpdate()).thenReturn(new Date(now - 10 * hour));
+        when(expiresSoon.getNextUpdate()).thenReturn(new Date(now + 2 * hour));
+        long delay = cacheUpdater.plan(expiresSoon, now);
+        assertTrue(delay <= 0.8 * hour && delay >= 0.72 * hour, "Delay " + delay);
+
+        X509CRL expiresLater = mock(X509CRL.class);
+        when(expiresLater.getNextUpdate()).thenReturn(new Date(now + 24 * hour));
+        delay = cacheUpdater.plan(expiresLater, now);
+        assertTrue(delay <= 21.6 * hour && delay >= 19.44 * hour, "Delay " + delay);
+
+        X509CRL withoutNextUpdate = mock(X509CRL.class);
+        delay = cacheUpdater.plan(withoutNextUpdate, now);
+        assertTrue(delay <= 4 * hour && delay >= 3.6 * hour, "Delay " + delay);
+
+        X509CRL expired = mock(X509CRL.class);
+        when(expired.getNextUpdate()).thenReturn(new Date(now - hour));
+        delay = cacheUpdater.plan(expired, now);
+        assertEquals(SimpleAsyncCrlCache.CacheUpdater.MIN_DELAY_MILLIS, delay);
+    }
+
+    @Test
+    @DisplayName("then a CRL removed from cache is not refreshed")
+    void testRemovedNotRefreshed() throws Exception {
+        String crlDistributionPoint = "http://crl.idporten.no/crl1";
+        SimpleAsyncCrlCache crlCache = new SimpleAsyncCrlCache(1L, 2 * 1000L);
+        crlCache.set(crlDistributionPoint, mock(X509CRL.class));
+        SimpleAsyncCrlCache.CacheUpdater cacheUpdater = spy(crlCache.getCacheUpdater());
+        doReturn(mock(X509CRL.class)).when(cacheUpdater).download(anyString());
+
+        crlCache.set(crlDistributionPoint, null);
+        cacheUpdater.refresh(crlDistributionPoint);
+
+        verify(cacheUpdater, never()).download(anyString());
+        assertFalse(crlCache.getUrls().contains(crlDistributionPoint));
+    }
+
 }
@@ -6,7 +6,14 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.security.cert.X509CRL;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,7 +30,8 @@ public class SimpleCachingCrlFetcherTest {
         SimpleCachingCrlFetcher crlFetcher = spy(new SimpleCachingCrlFetcher(crlCache));
         doReturn(crl).when(crlFetcher).download(eq(crlDistributionPoint));
         assertNotNull(crlFetcher.get(crlDistributionPoint));
-        verify(crlCache).get(crlDistributionPoint);
+        // Checked by caller and again by download leader.
+        verify(crlCache, times(2)).get(crlDistributionPoint);
     }
 
     @DisplayName("then an expired CRL will trigger a download")
@@ -64,4 +72,50 @@ public class SimpleCachingCrlFetcherTest {
         assertThrows(CertificateValidationException.class, () -> crlFetcher.get(crlDistributionPoint));
     }
 
+    @DisplayName("then concurrent requests for an outdated CRL share a single download")
+    @Test
+    void testConcurrentRequestsShareDownload() throws Exception {
+        String crlDistributionPoint = "http://crl.idporten.no/crl1";
+        X509CRL crl = mock(X509CRL.class);
+        when(crl.getNextUpdate()).thenReturn(new Date(System.currentTimeMillis() + (60 * 60 * 1000)));
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleCachingCrlFetcher crlFetcher = spy(new SimpleCachingCrlFetcher(crlCache));
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return crl;
+        }).when(crlFetcher).download(eq(crlDistributionPoint));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<X509CRL>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                results.add(executorService.submit(() -> crlFetcher.get(crlDistributionPoint)));
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<X509CRL> result : results)
+                assertEquals(crl, result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        verify(crlFetcher, times(1)).download(crlDistributionPoint);
+        assertEquals(crl, crlCache.get(crlDistributionPoint));
+    }
+
+    @DisplayName("then a download is not started if a fresh CRL was cached after the cache was checked")
+    @Test
+    void testFreshCrlCachedBeforeDownload() throws CertificateValidationException {
+        String crlDistributionPoint = "http://crl.idporten.no/crl1";
+        X509CRL crl = mock(X509CRL.class);
+        when(crl.getNextUpdate()).thenReturn(new Date(System.currentTimeMillis() + (60 * 60 * 1000)));
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        crlCache.set(crlDistributionPoint, crl);
+        SimpleCachingCrlFetcher crlFetcher = spy(new SimpleCachingCrlFetcher(crlCache));
+
+        assertEquals(crl, crlFetcher.fetch(crlDistributionPoint));
+        assertEquals(crl, crlFetcher.fetchAsync(crlDistributionPoint, Runnable::run).join());
+        verify(crlFetcher, never()).download(anyString());
+    }
 }
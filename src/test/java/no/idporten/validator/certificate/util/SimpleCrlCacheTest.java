@@ -58,4 +58,23 @@ public class SimpleCrlCacheTest {
         assertEquals(crl, crlCache.get(crlDistributionPoint));
     }
 
+    @Test
+    @DisplayName("then CRLs are evicted when exceeding memory budget, without weighing CRLs of an unbounded cache")
+    void testBudget() throws Exception {
+        SimpleCrlCache crlCache = new SimpleCrlCache(150);
+        X509CRL crl = mock(X509CRL.class);
+        when(crl.getEncoded()).thenReturn(new byte[100]);
+
+        crlCache.set("http://crl.idporten.no/c1", crl);
+        crlCache.set("http://crl.idporten.no/c2", crl);
+        assertNull(crlCache.get("http://crl.idporten.no/c1"));
+        assertNotNull(crlCache.get("http://crl.idporten.no/c2"));
+        assertEquals(1, crlCache.getEvictionCount());
+        verify(crl, times(2)).getEncoded();
+
+        X509CRL unweighed = mock(X509CRL.class);
+        new SimpleCrlCache().set("http://crl.idporten.no/c1", unweighed);
+        verify(unweighed, never()).getEncoded();
+    }
+
 }
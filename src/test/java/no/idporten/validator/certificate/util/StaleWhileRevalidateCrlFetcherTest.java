@@ -0,0 +1,77 @@
+package no.idporten.validator.certificate.util;
+
+import no.idporten.validator.certificate.api.CertificateValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509CRL;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("When fetching CRLs using stale-while-revalidate")
+public class StaleWhileRevalidateCrlFetcherTest {
+
+    private static final String CRL_DISTRIBUTION_POINT = "http://crl.idporten.no/crl1";
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static X509CRL crl(long nextUpdateOffset) {
+        X509CRL crl = mock(X509CRL.class);
+        when(crl.getNextUpdate()).thenReturn(new Date(System.currentTimeMillis() + nextUpdateOffset));
+        return crl;
+    }
+
+    @DisplayName("then a non-expired cached CRL will be returned directly")
+    @Test
+    void testNonExpiredCachedCrlReturnedFromCache() throws CertificateValidationException {
+        X509CRL crl = crl(HOUR);
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        crlCache.set(CRL_DISTRIBUTION_POINT, crl);
+        StaleWhileRevalidateCrlFetcher crlFetcher = spy(new StaleWhileRevalidateCrlFetcher(crlCache, HOUR, Runnable::run));
+
+        assertEquals(crl, crlFetcher.get(CRL_DISTRIBUTION_POINT));
+        verify(crlFetcher, never()).download(anyString());
+    }
+
+    @DisplayName("then an outdated CRL within grace period is returned while refreshed in the background")
+    @Test
+    void testOutdatedCrlWithinGraceRefreshedInBackground() throws CertificateValidationException {
+        X509CRL stale = crl(-HOUR);
+        X509CRL fresh = crl(HOUR);
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        crlCache.set(CRL_DISTRIBUTION_POINT, stale);
+        StaleWhileRevalidateCrlFetcher crlFetcher = spy(new StaleWhileRevalidateCrlFetcher(crlCache, 2 * HOUR, Runnable::run));
+        doReturn(fresh).when(crlFetcher).download(eq(CRL_DISTRIBUTION_POINT));
+
+        assertEquals(stale, crlFetcher.get(CRL_DISTRIBUTION_POINT));
+        assertEquals(fresh, crlCache.get(CRL_DISTRIBUTION_POINT));
+        verify(crlFetcher, times(1)).download(CRL_DISTRIBUTION_POINT);
+    }
+
+    @DisplayName("then a failed background refresh keeps the outdated CRL within grace period")
+    @Test
+    void testFailedBackgroundRefreshKeepsOutdatedCrl() throws CertificateValidationException {
+        X509CRL stale = crl(-HOUR);
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        crlCache.set(CRL_DISTRIBUTION_POINT, stale);
+        StaleWhileRevalidateCrlFetcher crlFetcher = spy(new StaleWhileRevalidateCrlFetcher(crlCache, 2 * HOUR, Runnable::run));
+        doThrow(new CertificateValidationException("test")).when(crlFetcher).download(eq(CRL_DISTRIBUTION_POINT));
+
+        assertEquals(stale, crlFetcher.get(CRL_DISTRIBUTION_POINT));
+        assertEquals(stale, crlCache.get(CRL_DISTRIBUTION_POINT));
+    }
+
+    @DisplayName("then an exception is thrown if a download fails after grace period")
+    @Test
+    void testFailedDownloadAfterGraceThrowsException() throws CertificateValidationException {
+        SimpleCrlCache crlCache = new SimpleCrlCache();
+        crlCache.set(CRL_DISTRIBUTION_POINT, crl(-2 * HOUR));
+        StaleWhileRevalidateCrlFetcher crlFetcher = spy(new StaleWhileRevalidateCrlFetcher(crlCache, HOUR, Runnable::run));
+        doThrow(new CertificateValidationException("test")).when(crlFetcher).download(eq(CRL_DISTRIBUTION_POINT));
+
+        assertThrows(CertificateValidationException.class, () -> crlFetcher.get(CRL_DISTRIBUTION_POINT));
+    }
+
+}